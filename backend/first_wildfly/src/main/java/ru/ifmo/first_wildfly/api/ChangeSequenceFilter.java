@@ -0,0 +1,45 @@
+package ru.ifmo.first_wildfly.api;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.ext.Provider;
+import ru.ifmo.first_wildfly.service.RequestSequence;
+
+/**
+ * Токен «чтения своих записей» для реплики: ответ на изменение несет номер журнала в X-Change-Sequence,
+ * клиент передает его в X-Min-Change-Sequence следующих запросов, и чтение уходит на основную БД,
+ * пока реплика не применит это изменение.
+ */
+@Provider
+public class ChangeSequenceFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    static final String CHANGE_SEQUENCE = "X-Change-Sequence";
+    static final String MIN_CHANGE_SEQUENCE = "X-Min-Change-Sequence";
+
+    @Inject
+    private RequestSequence requestSequence;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        String value = request.getHeaderString(MIN_CHANGE_SEQUENCE);
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        try {
+            requestSequence.require(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            request.abortWith(FirstExceptionMapper.errorResponse(400,
+                    MIN_CHANGE_SEQUENCE + " must be a number", request.getUriInfo()));
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (requestSequence.written() > 0) {
+            response.getHeaders().putSingle(CHANGE_SEQUENCE, requestSequence.written());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.ifmo.first_wildfly.api;
+
+import jakarta.enterprise.inject.spi.CDI;
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import ru.ifmo.first_wildfly.service.RequestSequence;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+
+/**
+ * X-Min-Change-Sequence для VehicleAPI: то же, что {@link ChangeSequenceFilter} делает для REST, — чтение
+ * уходит на основную БД, пока реплика не применит изменение с этим номером. Нечисловое значение — ошибка
+ * клиента (soap:Client, HTTP 400), как 400 у REST.
+ */
+public class ChangeSequenceInInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    public ChangeSequenceInInterceptor() {
+        super(Phase.PRE_INVOKE);
+    }
+
+    @Override
+    public void handleMessage(Message message) {
+        Map<String, List<String>> headers = CastUtils.cast((Map<?, ?>) message.get(Message.PROTOCOL_HEADERS));
+        List<String> values = isNull(headers) ? null : headers.get(ChangeSequenceFilter.MIN_CHANGE_SEQUENCE);
+        if (isNull(values) || values.isEmpty() || values.get(0).isBlank()) {
+            return;
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(values.get(0).trim());
+        } catch (NumberFormatException e) {
+            Fault fault = new Fault(new IllegalArgumentException(
+                    ChangeSequenceFilter.MIN_CHANGE_SEQUENCE + " must be a number", e));
+            fault.setFaultCode(Fault.FAULT_CODE_CLIENT);
+            fault.setStatusCode(400);
+            throw fault;
+        }
+        CDI.current().select(RequestSequence.class).get().require(sequence);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.ifmo.first_wildfly.api;
+
+import jakarta.enterprise.inject.spi.CDI;
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import ru.ifmo.first_wildfly.service.RequestSequence;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.util.Objects.isNull;
+
+/**
+ * X-Change-Sequence в ответах VehicleAPI на изменения: номер журнала, как его возвращает {@link ChangeSequenceFilter}
+ * для REST. Клиент передает его в X-Min-Change-Sequence следующих запросов ({@link ChangeSequenceInInterceptor}).
+ */
+public class ChangeSequenceOutInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    public ChangeSequenceOutInterceptor() {
+        super(Phase.PREPARE_SEND);
+    }
+
+    @Override
+    public void handleMessage(Message message) {
+        long written = CDI.current().select(RequestSequence.class).get().written();
+        if (written <= 0) {
+            return;
+        }
+        Map<String, List<String>> headers = CastUtils.cast((Map<?, ?>) message.get(Message.PROTOCOL_HEADERS));
+        if (isNull(headers)) {
+            headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            message.put(Message.PROTOCOL_HEADERS, headers);
+        }
+        headers.put(ChangeSequenceFilter.CHANGE_SEQUENCE, List.of(String.valueOf(written)));
+    }
+}
@@ -0,0 +1,46 @@
+package ru.ifmo.first_wildfly.api;
+
+import jakarta.ejb.EJBException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import ru.ifmo.first_wildfly.exception.FirstException;
+
+/**
+ * {@link FirstException}, выброшенное внутри EJB, приходит обёрнутым в {@link EJBException}:
+ * причина разворачивается и отдаётся так же, как в {@link FirstExceptionMapper}.
+ * Конфликт оптимистичной блокировки при параллельном обновлении отдаётся как 409.
+ */
+@Provider
+public class EjbExceptionMapper implements ExceptionMapper<EJBException> {
+
+    @Context
+    private UriInfo uriInfo;
+
+    @Override
+    public Response toResponse(EJBException exception) {
+        Throwable cause = exception;
+        while (cause != null && !(cause instanceof FirstException)) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof FirstException e) {
+            return FirstExceptionMapper.errorResponse(e.getHttpStatus(), e.getMessage(), uriInfo);
+        }
+        if (isOptimisticLock(exception)) {
+            return FirstExceptionMapper.errorResponse(409, "Vehicle was modified concurrently", uriInfo);
+        }
+        return FirstExceptionMapper.errorResponse(500, "Internal server error", uriInfo);
+    }
+
+    private static boolean isOptimisticLock(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.ifmo.first_wildfly.api;
+
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import ru.ifmo.first_wildfly.dto.ErrorDto;
+import ru.ifmo.first_wildfly.exception.FirstException;
+
+import java.time.OffsetDateTime;
+
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+/**
+ * Переводит {@link FirstException} в тело Error из swag.yml с кодом ответа из исключения.
+ */
+@Provider
+public class FirstExceptionMapper implements ExceptionMapper<FirstException> {
+
+    @Context
+    private UriInfo uriInfo;
+
+    @Override
+    public Response toResponse(FirstException exception) {
+        return errorResponse(exception.getHttpStatus(), exception.getMessage(), uriInfo);
+    }
+
+    static Response errorResponse(int status, String message, UriInfo uriInfo) {
+        Response.Status known = Response.Status.fromStatusCode(status);
+        var error = new ErrorDto(
+                OffsetDateTime.now().format(ISO_OFFSET_DATE_TIME),
+                status,
+                known != null ? known.getReasonPhrase() : null,
+                message,
+                uriInfo != null ? uriInfo.getPath() : null
+        );
+        return Response.status(status)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(error)
+                .build();
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.jws.WebParam;
 import jakarta.jws.WebService;
 import ru.ifmo.first_wildfly.dto.*;
 import ru.ifmo.first_wildfly.exception.FirstException;
+import ru.ifmo.first_wildfly.service.VehicleBulkService;
 import ru.ifmo.first_wildfly.service.VehicleService;
 
 import java.util.List;
@@ -18,6 +19,9 @@ public class VehicleApiImpl {
     @EJB
     private VehicleService vehicleService;
 
+    @EJB
+    private VehicleBulkService vehicleBulkService;
+
     @WebMethod
     public PagedVehicleResponseDto getVehicles(
             @WebParam(name = "page") Integer page,
@@ -31,7 +35,13 @@ public class VehicleApiImpl {
             @WebParam(name = "maxWheels") Integer maxWheels,
             @WebParam(name = "minCapacity") Float minCapacity,
             @WebParam(name = "maxCapacity") Float maxCapacity,
-            @WebParam(name = "fuelType") String fuelType) {
+            @WebParam(name = "fuelType") String fuelType,
+            @WebParam(name = "cursor") String cursor,
+            @WebParam(name = "withTotal") Boolean withTotal,
+            @WebParam(name = "minCoordinateX") Long minCoordinateX,
+            @WebParam(name = "maxCoordinateX") Long maxCoordinateX,
+            @WebParam(name = "minCoordinateY") Integer minCoordinateY,
+            @WebParam(name = "maxCoordinateY") Integer maxCoordinateY) {
 
         var criteria = new ru.ifmo.first_wildfly.domain.VehicleSearchCriteria();
         criteria.setName(name);
@@ -42,12 +52,18 @@ public class VehicleApiImpl {
         criteria.setMinCapacity(minCapacity != null ? java.math.BigDecimal.valueOf(minCapacity) : null);
         criteria.setMaxCapacity(maxCapacity != null ? java.math.BigDecimal.valueOf(maxCapacity) : null);
         criteria.setFuelType(fuelType);
+        criteria.setMinCoordinateX(minCoordinateX);
+        criteria.setMaxCoordinateX(maxCoordinateX);
+        criteria.setMinCoordinateY(minCoordinateY);
+        criteria.setMaxCoordinateY(maxCoordinateY);
 
         var pageParams = new ru.ifmo.first_wildfly.domain.VehiclePage();
         pageParams.setPage(page);
         pageParams.setSize(size);
         pageParams.setSort(sort);
         pageParams.setOrder(order);
+        pageParams.setCursor(cursor);
+        pageParams.setWithTotal(withTotal);
 
         return vehicleService.getVehicles(criteria, pageParams);
     }
@@ -58,6 +74,11 @@ public class VehicleApiImpl {
                 .orElseThrow(() -> new FirstException("Vehicle not found", 404));
     }
 
+    @WebMethod
+    public VehiclesByIdsResponseDto getVehiclesByIds(@WebParam(name = "id") List<Integer> ids) {
+        return vehicleService.getByIds(ids);
+    }
+
     @WebMethod
     public VehicleDto createVehicle(@WebParam(name = "vehicle") VehicleCreateDto vehicle) {
         return vehicleService.createVehicle(vehicle);
@@ -66,18 +87,60 @@ public class VehicleApiImpl {
     @WebMethod
     public VehicleDto updateVehicle(
             @WebParam(name = "id") Integer id,
-            @WebParam(name = "vehicle") VehicleUpdateDto vehicle) {
-        return vehicleService.update(id, vehicle);
+            @WebParam(name = "vehicle") VehicleUpdateDto vehicle,
+            @WebParam(name = "version") Long version) {
+        return vehicleService.update(id, vehicle, version);
+    }
+
+    @WebMethod
+    public VehicleDto addWheels(
+            @WebParam(name = "id") Integer id,
+            @WebParam(name = "numberOfWheels") Integer numberOfWheels) {
+        return vehicleService.addWheels(id, numberOfWheels);
+    }
+
+    @WebMethod
+    public void deleteVehicle(
+            @WebParam(name = "id") Integer id,
+            @WebParam(name = "version") Long version) {
+        vehicleService.delete(id, version);
+    }
+
+    @WebMethod
+    public List<BulkItemResultDto> bulkCreateVehicles(@WebParam(name = "vehicle") List<VehicleCreateDto> vehicles) {
+        return vehicleBulkService.createVehicles(vehicles);
     }
 
     @WebMethod
-    public void deleteVehicle(@WebParam(name = "id") Integer id) {
-        vehicleService.delete(id);
+    public List<BulkItemResultDto> bulkUpdateVehicles(@WebParam(name = "vehicle") List<VehicleBulkUpdateDto> vehicles) {
+        return vehicleBulkService.updateVehicles(vehicles);
     }
 
     @WebMethod
-    public List<VehicleDto> searchByNamePrefix(@WebParam(name = "prefix") String prefix) {
-        return vehicleService.vehiclesSearchNameStartsWithPrefix(prefix);
+    public List<BulkItemResultDto> bulkDeleteVehicles(@WebParam(name = "id") List<Integer> ids) {
+        return vehicleBulkService.deleteVehicles(ids);
+    }
+
+    @WebMethod
+    public List<VehicleDto> searchByNamePrefix(
+            @WebParam(name = "prefix") String prefix,
+            @WebParam(name = "limit") Integer limit) {
+        return vehicleService.vehiclesSearchNameStartsWithPrefix(prefix, limit);
+    }
+
+    @WebMethod
+    public List<VehicleDto> searchByCoordinates(
+            @WebParam(name = "x") Long x,
+            @WebParam(name = "y") Integer y,
+            @WebParam(name = "maxDistance") Integer maxDistance) {
+        return vehicleService.searchByCoordinates(x, y, maxDistance);
+    }
+
+    @WebMethod
+    public VehicleChangesDto getChangesSince(
+            @WebParam(name = "since") Long since,
+            @WebParam(name = "limit") Integer limit) {
+        return vehicleService.getChangesSince(since, limit);
     }
 
     @WebMethod
@@ -85,8 +148,22 @@ public class VehicleApiImpl {
         return vehicleService.countAverageEnginePowerGet();
     }
 
+    @WebMethod
+    public GroupedStatisticsDto getGroupedStatistics(
+            @WebParam(name = "groupBy") String groupBy,
+            @WebParam(name = "metric") String metric,
+            @WebParam(name = "buckets") Integer buckets,
+            @WebParam(name = "percentiles") String percentiles) {
+        return vehicleService.getGroupedStatistics(groupBy, metric, buckets, percentiles);
+    }
+
     @WebMethod
     public CountByWheelsResponseDto getCountByWheels(@WebParam(name = "wheels") Integer wheels) {
         return vehicleService.getCountByWheelsWheels(wheels);
     }
+
+    @WebMethod
+    public CacheStatisticsDto getCacheStatistics() {
+        return vehicleService.getCacheStatistics();
+    }
 }
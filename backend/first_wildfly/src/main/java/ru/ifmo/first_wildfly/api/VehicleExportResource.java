@@ -0,0 +1,82 @@
+package ru.ifmo.first_wildfly.api;
+
+import jakarta.ejb.EJB;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import ru.ifmo.first_wildfly.domain.VehicleSearchCriteria;
+import ru.ifmo.first_wildfly.service.VehicleService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Выгрузка всего каталога одним запросом в формате NDJSON (один объект Vehicle на строку).
+ * Ответ пишется по мере чтения строк из БД, поэтому не буферизуется целиком ни на сервере, ни в памяти.
+ */
+@Path("/vehicles/export")
+public class VehicleExportResource {
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    @EJB
+    private VehicleService vehicleService;
+
+    @GET
+    @Produces(APPLICATION_NDJSON)
+    public Response export(
+            @QueryParam("name") String name,
+            @QueryParam("minEnginePower") Integer minEnginePower,
+            @QueryParam("maxEnginePower") Integer maxEnginePower,
+            @QueryParam("minWheels") Integer minWheels,
+            @QueryParam("maxWheels") Integer maxWheels,
+            @QueryParam("minCapacity") BigDecimal minCapacity,
+            @QueryParam("maxCapacity") BigDecimal maxCapacity,
+            @QueryParam("fuelType") String fuelType,
+            @QueryParam("minCoordinateX") Long minCoordinateX,
+            @QueryParam("maxCoordinateX") Long maxCoordinateX,
+            @QueryParam("minCoordinateY") Integer minCoordinateY,
+            @QueryParam("maxCoordinateY") Integer maxCoordinateY) {
+
+        var criteria = new VehicleSearchCriteria();
+        criteria.setName(name);
+        criteria.setMinEnginePower(minEnginePower);
+        criteria.setMaxEnginePower(maxEnginePower);
+        criteria.setMinWheels(minWheels);
+        criteria.setMaxWheels(maxWheels);
+        criteria.setMinCapacity(minCapacity);
+        criteria.setMaxCapacity(maxCapacity);
+        criteria.setFuelType(fuelType);
+        criteria.setMinCoordinateX(minCoordinateX);
+        criteria.setMaxCoordinateX(maxCoordinateX);
+        criteria.setMinCoordinateY(minCoordinateY);
+        criteria.setMaxCoordinateY(maxCoordinateY);
+
+        StreamingOutput body = output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, UTF_8));
+            vehicleService.forEachVehicle(criteria, vehicle -> {
+                try {
+                    writer.write(JSONB.toJson(vehicle));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return Response.ok(body, APPLICATION_NDJSON).build();
+    }
+}
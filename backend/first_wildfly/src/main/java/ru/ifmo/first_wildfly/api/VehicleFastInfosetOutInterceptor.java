@@ -0,0 +1,39 @@
+package ru.ifmo.first_wildfly.api;
+
+import org.apache.cxf.interceptor.FIStaxOutInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+import java.util.Set;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Fast Infoset для ответов VehicleAPI (по Accept: application/fastinfoset клиента) только в операциях
+ * со списками: выборки, поиск, журнал изменений и пакетные операции.
+ * <p>
+ * По VehicleSoapEncodingBenchmark запись и разбор Fast Infoset стоят в 1,6–2,4 раза больше, чем текстового XML,
+ * при любом размере ответа; выигрыш — только в объеме (в 4,7 раза меньше XML на странице из 100 записей).
+ * Для одиночных записей и статистики это лишняя работа ради нескольких сотен байт, они уходят текстовым XML.
+ */
+public class VehicleFastInfosetOutInterceptor extends FIStaxOutInterceptor {
+
+    static final Set<String> LIST_OPERATIONS = Set.of(
+            "getVehicles",
+            "getVehiclesByIds",
+            "searchByNamePrefix",
+            "searchByCoordinates",
+            "getChangesSince",
+            "bulkCreateVehicles",
+            "bulkUpdateVehicles",
+            "bulkDeleteVehicles");
+
+    @Override
+    public void handleMessage(Message message) {
+        BindingOperationInfo operation = message.getExchange().getBindingOperationInfo();
+        if (isNull(operation) || !LIST_OPERATIONS.contains(operation.getName().getLocalPart())) {
+            return;
+        }
+        super.handleMessage(message);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.ifmo.first_wildfly.api;
+
+import org.apache.cxf.transport.common.gzip.GZIPOutInterceptor;
+
+/**
+ * Сжатие gzip ответов VehicleAPI (по Accept-Encoding клиента) только для тел от {@link #THRESHOLD_BYTES} байт.
+ * <p>
+ * По VehicleSoapEncodingBenchmark сжатие и распаковка ответа в 1,8 КБ (5 транспортных средств) стоят ~95 мкс
+ * и экономят 1,3 КБ — это окупается только на канале медленнее ~110 Мбит/с; ответ в 6 КБ экономит 5,4 КБ
+ * за ~210 мкс. Одиночные записи, статистика и короткие списки меньше порога и уходят без сжатия.
+ */
+public class VehicleGzipOutInterceptor extends GZIPOutInterceptor {
+
+    static final int THRESHOLD_BYTES = 4096;
+
+    public VehicleGzipOutInterceptor() {
+        super(THRESHOLD_BYTES);
+    }
+}
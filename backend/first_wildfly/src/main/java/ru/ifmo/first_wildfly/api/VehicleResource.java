@@ -0,0 +1,225 @@
+package ru.ifmo.first_wildfly.api;
+
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import ru.ifmo.first_wildfly.domain.VehiclePage;
+import ru.ifmo.first_wildfly.domain.VehicleSearchCriteria;
+import ru.ifmo.first_wildfly.dto.*;
+import ru.ifmo.first_wildfly.exception.FirstException;
+import ru.ifmo.first_wildfly.service.VehicleService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * JSON-реализация контракта swag.yml напрямую поверх {@link VehicleService}, без SOAP-конверта
+ * и XML-сериализации. Операции совпадают с {@link VehicleApiImpl}.
+ * <p>
+ * Ответы с транспортным средством и страницы помечаются ETag (версия строки или хэш id и версий страницы).
+ * GET с совпавшим If-None-Match получает 304 без тела, изменение с устаревшим If-Match — 412.
+ */
+@Path("/vehicles")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class VehicleResource {
+
+    @EJB
+    private VehicleService vehicleService;
+
+    @Context
+    private Request request;
+
+    @GET
+    public Response getVehicles(
+            @QueryParam("page") Integer page,
+            @QueryParam("size") Integer size,
+            @QueryParam("sort") String sort,
+            @QueryParam("order") String order,
+            @QueryParam("name") String name,
+            @QueryParam("minEnginePower") Integer minEnginePower,
+            @QueryParam("maxEnginePower") Integer maxEnginePower,
+            @QueryParam("minWheels") Integer minWheels,
+            @QueryParam("maxWheels") Integer maxWheels,
+            @QueryParam("minCapacity") BigDecimal minCapacity,
+            @QueryParam("maxCapacity") BigDecimal maxCapacity,
+            @QueryParam("fuelType") String fuelType,
+            @QueryParam("minCoordinateX") Long minCoordinateX,
+            @QueryParam("maxCoordinateX") Long maxCoordinateX,
+            @QueryParam("minCoordinateY") Integer minCoordinateY,
+            @QueryParam("maxCoordinateY") Integer maxCoordinateY,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("withTotal") Boolean withTotal) {
+
+        var criteria = new VehicleSearchCriteria();
+        criteria.setName(name);
+        criteria.setMinEnginePower(minEnginePower);
+        criteria.setMaxEnginePower(maxEnginePower);
+        criteria.setMinWheels(minWheels);
+        criteria.setMaxWheels(maxWheels);
+        criteria.setMinCapacity(minCapacity);
+        criteria.setMaxCapacity(maxCapacity);
+        criteria.setFuelType(fuelType);
+        criteria.setMinCoordinateX(minCoordinateX);
+        criteria.setMaxCoordinateX(maxCoordinateX);
+        criteria.setMinCoordinateY(minCoordinateY);
+        criteria.setMaxCoordinateY(maxCoordinateY);
+
+        var pageParams = new VehiclePage();
+        pageParams.setPage(page);
+        pageParams.setSize(size);
+        pageParams.setSort(sort);
+        pageParams.setOrder(order);
+        pageParams.setCursor(cursor);
+        pageParams.setWithTotal(withTotal);
+
+        var vehicles = vehicleService.getVehicles(criteria, pageParams);
+        return conditional(vehicles, pageTag(vehicles));
+    }
+
+    @POST
+    public Response createVehicle(VehicleCreateDto vehicle) {
+        var created = vehicleService.createVehicle(vehicle);
+        return Response.status(Response.Status.CREATED)
+                .entity(created)
+                .tag(vehicleTag(created))
+                .build();
+    }
+
+    @GET
+    @Path("/{id}")
+    public Response getVehicleById(@PathParam("id") Integer id) {
+        var vehicle = vehicleService.getById(id)
+                .orElseThrow(() -> new FirstException("Vehicle not found", 404));
+        return conditional(vehicle, vehicleTag(vehicle));
+    }
+
+    @POST
+    @Path("/{id}")
+    public Response updateVehicle(
+            @PathParam("id") Integer id,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+            VehicleUpdateDto vehicle) {
+        var updated = vehicleService.update(id, vehicle, expectedVersion(ifMatch));
+        return Response.ok(updated).tag(vehicleTag(updated)).build();
+    }
+
+    @PATCH
+    @Path("/{id}/add-wheels/{numberOfWheels}")
+    public Response addWheels(
+            @PathParam("id") Integer id,
+            @PathParam("numberOfWheels") Integer numberOfWheels) {
+        var updated = vehicleService.addWheels(id, numberOfWheels);
+        return Response.ok(updated).tag(vehicleTag(updated)).build();
+    }
+
+    @DELETE
+    @Path("/{id}")
+    public Response deleteVehicle(
+            @PathParam("id") Integer id,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch) {
+        vehicleService.delete(id, expectedVersion(ifMatch));
+        return Response.noContent().build();
+    }
+
+    @GET
+    @Path("/by-ids")
+    public VehiclesByIdsResponseDto getVehiclesByIds(@QueryParam("ids") List<Integer> ids) {
+        return vehicleService.getByIds(ids);
+    }
+
+    @GET
+    @Path("/changes")
+    public VehicleChangesDto getChangesSince(
+            @QueryParam("since") @DefaultValue("0") Long since,
+            @QueryParam("limit") Integer limit) {
+        return vehicleService.getChangesSince(since, limit);
+    }
+
+    @GET
+    @Path("/stats/average-engine-power")
+    public AverageEnginePowerResponseDto getAverageEnginePower() {
+        return vehicleService.countAverageEnginePowerGet();
+    }
+
+    @GET
+    @Path("/stats/grouped")
+    public GroupedStatisticsDto getGroupedStatistics(
+            @QueryParam("groupBy") String groupBy,
+            @QueryParam("metric") String metric,
+            @QueryParam("buckets") Integer buckets,
+            @QueryParam("percentiles") String percentiles) {
+        return vehicleService.getGroupedStatistics(groupBy, metric, buckets, percentiles);
+    }
+
+    @GET
+    @Path("/stats/count-by-wheels/{wheels}")
+    public CountByWheelsResponseDto getCountByWheels(@PathParam("wheels") Integer wheels) {
+        return vehicleService.getCountByWheelsWheels(wheels);
+    }
+
+    @GET
+    @Path("/search/name-starts-with/{prefix}")
+    public List<VehicleDto> searchByNamePrefix(
+            @PathParam("prefix") String prefix,
+            @QueryParam("limit") Integer limit) {
+        return vehicleService.vehiclesSearchNameStartsWithPrefix(prefix, limit);
+    }
+
+    @GET
+    @Path("/search/by-coordinates")
+    public List<VehicleDto> searchByCoordinates(
+            @QueryParam("x") Long x,
+            @QueryParam("y") Integer y,
+            @QueryParam("maxDistance") Integer maxDistance) {
+        return vehicleService.searchByCoordinates(x, y, maxDistance);
+    }
+
+    private Response conditional(Object entity, EntityTag tag) {
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        return Response.ok(entity).tag(tag).build();
+    }
+
+    private static EntityTag vehicleTag(VehicleDto vehicle) {
+        return new EntityTag(String.valueOf(vehicle.getVersion()));
+    }
+
+    private static EntityTag pageTag(PagedVehicleResponseDto page) {
+        var state = new StringBuilder()
+                .append(page.getTotalElements()).append(';')
+                .append(page.getCurrentPage()).append(';')
+                .append(page.getHasNext()).append(';')
+                .append(page.getNextCursor());
+        for (VehicleDto vehicle : page.getContent()) {
+            state.append(';').append(vehicle.getId()).append(':').append(vehicle.getVersion());
+        }
+        return new EntityTag(UUID.nameUUIDFromBytes(state.toString().getBytes(UTF_8)).toString());
+    }
+
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        value = value.replace("\"", "");
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new FirstException("Vehicle was modified concurrently", 412);
+        }
+    }
+}
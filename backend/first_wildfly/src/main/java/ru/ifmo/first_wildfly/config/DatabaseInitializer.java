@@ -5,36 +5,191 @@ import jakarta.ejb.Singleton;
 import jakarta.ejb.Startup;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import ru.ifmo.first_wildfly.service.VehicleQueryPlans;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Singleton
 @Startup
 public class DatabaseInitializer {
 
-    @PersistenceContext
+    /**
+     * Версия H2, на которой приложение собирается и тестируется ({@code h2.version} в pom.xml): модуль
+     * com.h2database.h2 WildFly 32. Драйвер берется из модуля сервера, поэтому при другой версии
+     * при запуске выводится предупреждение.
+     */
+    public static final String H2_VERSION = "2.2.224";
+
+    public static final String CREATE_VEHICLE_TABLE = "CREATE TABLE IF NOT EXISTS vehicle (" +
+            "id SERIAL PRIMARY KEY, " +
+            "name VARCHAR NOT NULL CHECK (name <> ''), " +
+            "coordinate_x BIGINT NOT NULL, " +
+            "coordinate_y INTEGER NOT NULL, " +
+            "creation_date TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(), " +
+            "engine_power BIGINT CHECK (engine_power > 0), " +
+            "number_of_wheels BIGINT CHECK (number_of_wheels > 0), " +
+            "capacity REAL NOT NULL CHECK (capacity > 0), " +
+            "fuel_type VARCHAR(31) NOT NULL, " +
+            "version BIGINT NOT NULL DEFAULT 0)";
+
+    // счетчик версий для оптимистичной блокировки и ETag; в существующих строках начинается с 0
+    public static final String ADD_VERSION_COLUMN = "ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS " +
+            "version BIGINT NOT NULL DEFAULT 0";
+
+    // H2 не поддерживает индексы по выражению, поэтому LOWER(name) хранится в вычисляемом столбце
+    public static final String ADD_NAME_LOWER_COLUMN = "ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS " +
+            "name_lower VARCHAR GENERATED ALWAYS AS (LOWER(name))";
+
+    /**
+     * Индексы под фильтры и сортировки {@code VehicleQueries}.
+     * id в конце каждого индекса дает устойчивый порядок для keyset-пагинации. Для столбцов, допускающих
+     * NULL, есть индекс на каждое направление: NULL идет первым и по возрастанию, и по убыванию.
+     */
+    public static final List<String> INDEXES = List.of(
+            "CREATE INDEX IF NOT EXISTS idx_vehicle_name ON vehicle(name, id)",
+            // фильтр name — подстрока имени без учета регистра (LIKE '%подстрока%') проверяется по этому индексу
+            "CREATE INDEX IF NOT EXISTS idx_vehicle_name_lower ON vehicle(name_lower, id)",
+            "CREATE INDEX IF NOT EXISTS idx_vehicle_engine_power ON vehicle(engine_power NULLS FIRST, id)",
+            "CREATE INDEX IF NOT EXISTS idx_vehicle_engine_power_desc ON vehicle(engine_power DESC NULLS FIRST, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_vehicle_number_of_wheels ON vehicle(number_of_wheels NULLS FIRST, id)",
+            "CREATE INDEX IF NOT EXISTS idx_vehicle_number_of_wheels_desc ON vehicle(number_of_wheels DESC NULLS FIRST, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_vehicle_capacity ON vehicle(capacity, id)",
+            "CREATE INDEX IF NOT EXISTS idx_vehicle_fuel_type_engine_power ON vehicle(fuel_type, engine_power, id)",
+            "CREATE INDEX IF NOT EXISTS idx_vehicle_coordinates ON vehicle(coordinate_x, coordinate_y, id)"
+    );
+
+    // идентификаторы выдаются блоками по 50 (allocationSize сущностей), иначе Hibernate не может
+    // объединять INSERT в JDBC-пакеты
+    public static final String CREATE_VEHICLE_SEQUENCE = "CREATE SEQUENCE IF NOT EXISTS vehicle_seq INCREMENT BY 50";
+
+    public static final String CREATE_CHANGE_TABLE = "CREATE TABLE IF NOT EXISTS vehicle_change (" +
+            "seq BIGINT PRIMARY KEY, " +
+            "vehicle_id INTEGER NOT NULL, " +
+            "change_type VARCHAR(7) NOT NULL, " +
+            "changed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now())";
+
+    /**
+     * Строка-счетчик журнала: {@code seq} — номер последней зафиксированной записи,
+     * {@code compacted_seq} — номер последнего удаленного при сжатии DELETE (см. {@code VehicleChangeBatch.compact}).
+     */
+    public static final String CREATE_CHANGE_COUNTER_TABLE = "CREATE TABLE IF NOT EXISTS vehicle_change_counter (" +
+            "id INTEGER PRIMARY KEY, " +
+            "seq BIGINT NOT NULL)";
+
+    public static final String ADD_COMPACTED_SEQUENCE_COLUMN = "ALTER TABLE vehicle_change_counter " +
+            "ADD COLUMN IF NOT EXISTS compacted_seq BIGINT NOT NULL DEFAULT 0";
+
+    // поиск более поздней записи того же транспортного средства при сжатии журнала
+    public static final String CHANGE_INDEX = "CREATE INDEX IF NOT EXISTS idx_vehicle_change_vehicle " +
+            "ON vehicle_change(vehicle_id, seq)";
+
+    public static final String INSERT_CHANGE_COUNTER = "INSERT INTO vehicle_change_counter(id, seq) " +
+            "SELECT 1, 0 WHERE NOT EXISTS (SELECT 1 FROM vehicle_change_counter)";
+
+    /**
+     * Вся схема в порядке выполнения при запуске, без переноса координат и перезапуска последовательности.
+     * src/main/resources/data.sql повторяет этот список для ручного создания базы.
+     */
+    public static final List<String> SCHEMA = Stream.of(
+            Stream.of(CREATE_VEHICLE_TABLE, ADD_VERSION_COLUMN, ADD_NAME_LOWER_COLUMN),
+            INDEXES.stream(),
+            Stream.of(CREATE_VEHICLE_SEQUENCE, CREATE_CHANGE_TABLE, CREATE_CHANGE_COUNTER_TABLE,
+                    ADD_COMPACTED_SEQUENCE_COLUMN, CHANGE_INDEX, INSERT_CHANGE_COUNTER)
+    ).flatMap(statements -> statements).toList();
+
+    @PersistenceContext(unitName = "default")
     private EntityManager entityManager;
 
     @PostConstruct
     public void init() {
+        checkH2Version();
         try {
-            entityManager.createNativeQuery("CREATE TABLE IF NOT EXISTS coordinate (" +
-                    "id SERIAL PRIMARY KEY, " +
-                    "x BIGINT NOT NULL, " +
-                    "y INTEGER NOT NULL)").executeUpdate();
-
-            entityManager.createNativeQuery("CREATE TABLE IF NOT EXISTS vehicle (" +
-                    "id SERIAL PRIMARY KEY, " +
-                    "name VARCHAR NOT NULL CHECK (name <> ''), " +
-                    "coordinate_id BIGINT NOT NULL, " +
-                    "creation_date TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(), " +
-                    "engine_power BIGINT CHECK (engine_power > 0), " +
-                    "number_of_wheels BIGINT CHECK (number_of_wheels > 0), " +
-                    "capacity REAL NOT NULL CHECK (capacity > 0), " +
-                    "fuel_type VARCHAR(31) NOT NULL, " +
-                    "CONSTRAINT fk_vehicle_coordinates FOREIGN KEY (coordinate_id) REFERENCES coordinate(id) ON DELETE CASCADE)"
-            ).executeUpdate();
+            entityManager.createNativeQuery(CREATE_VEHICLE_TABLE).executeUpdate();
+
+            migrateCoordinatesInline();
+
+            entityManager.createNativeQuery(ADD_VERSION_COLUMN).executeUpdate();
+            entityManager.createNativeQuery(ADD_NAME_LOWER_COLUMN).executeUpdate();
+
+            for (String index : INDEXES) {
+                entityManager.createNativeQuery(index).executeUpdate();
+            }
+
+            entityManager.createNativeQuery(CREATE_VEHICLE_SEQUENCE).executeUpdate();
+            Number next = (Number) entityManager.createNativeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM vehicle").getSingleResult();
+            entityManager.createNativeQuery("ALTER SEQUENCE vehicle_seq RESTART WITH " + next.longValue()).executeUpdate();
+            createChangeLog();
             System.out.println("EXECUTED successfully!");
         } catch (Exception e) {
             System.out.println("Tables may already exist: " + e.getMessage());
         }
+
+        explainQueryShapes().forEach((shape, plan) ->
+                System.out.println("Query plan [" + shape + "] " + (plan.contains("tableScan") ? "FULL SCAN" : "index") + ": " + plan));
+    }
+
+    private void checkH2Version() {
+        try {
+            Object version = entityManager.createNativeQuery("SELECT H2VERSION()").getSingleResult();
+            if (!H2_VERSION.equals(String.valueOf(version))) {
+                System.out.println("WARNING: H2 " + version + " differs from " + H2_VERSION +
+                        " the application is built and tested against");
+            }
+        } catch (Exception e) {
+            System.out.println("H2 version check failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Однократный перенос координат из отдельной таблицы coordinate в столбцы vehicle.
+     * Выполняется, только если в vehicle еще есть старый столбец coordinate_id.
+     */
+    private void migrateCoordinatesInline() {
+        Number legacy = (Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = 'VEHICLE' AND COLUMN_NAME = 'COORDINATE_ID'").getSingleResult();
+        if (legacy.longValue() == 0) {
+            return;
+        }
+
+        entityManager.createNativeQuery("ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS coordinate_x BIGINT").executeUpdate();
+        entityManager.createNativeQuery("ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS coordinate_y INTEGER").executeUpdate();
+        int migrated = entityManager.createNativeQuery("UPDATE vehicle v SET " +
+                "coordinate_x = (SELECT c.x FROM coordinate c WHERE c.id = v.coordinate_id), " +
+                "coordinate_y = (SELECT c.y FROM coordinate c WHERE c.id = v.coordinate_id)").executeUpdate();
+        entityManager.createNativeQuery("ALTER TABLE vehicle ALTER COLUMN coordinate_x SET NOT NULL").executeUpdate();
+        entityManager.createNativeQuery("ALTER TABLE vehicle ALTER COLUMN coordinate_y SET NOT NULL").executeUpdate();
+        entityManager.createNativeQuery("ALTER TABLE vehicle DROP CONSTRAINT IF EXISTS fk_vehicle_coordinates").executeUpdate();
+        entityManager.createNativeQuery("ALTER TABLE vehicle DROP COLUMN coordinate_id").executeUpdate();
+        entityManager.createNativeQuery("DROP TABLE IF EXISTS coordinate").executeUpdate();
+        entityManager.createNativeQuery("DROP SEQUENCE IF EXISTS coordinate_seq").executeUpdate();
+        System.out.println("Coordinates migrated inline for " + migrated + " vehicles");
+    }
+
+    /**
+     * Журнал изменений для инкрементальной синхронизации и строка-счетчик его номеров.
+     * При первом создании журнал заполняется записями UPSERT для уже существующих транспортных средств,
+     * чтобы чтение с нуля давало полный каталог.
+     */
+    private void createChangeLog() {
+        entityManager.createNativeQuery(CREATE_CHANGE_TABLE).executeUpdate();
+        entityManager.createNativeQuery(CREATE_CHANGE_COUNTER_TABLE).executeUpdate();
+        entityManager.createNativeQuery(ADD_COMPACTED_SEQUENCE_COLUMN).executeUpdate();
+        entityManager.createNativeQuery(CHANGE_INDEX).executeUpdate();
+        int created = entityManager.createNativeQuery(INSERT_CHANGE_COUNTER).executeUpdate();
+        if (created > 0) {
+            entityManager.createNativeQuery("INSERT INTO vehicle_change(seq, vehicle_id, change_type) " +
+                    "SELECT ROW_NUMBER() OVER (ORDER BY id), id, 'UPSERT' FROM vehicle").executeUpdate();
+            entityManager.createNativeQuery("UPDATE vehicle_change_counter " +
+                    "SET seq = (SELECT COALESCE(MAX(seq), 0) FROM vehicle_change) WHERE id = 1").executeUpdate();
+        }
+    }
+
+    /**
+     * Возвращает планы H2 (EXPLAIN) для типовых запросов к vehicle, см. {@link VehicleQueryPlans}.
+     */
+    public Map<String, String> explainQueryShapes() {
+        return VehicleQueryPlans.explain(entityManager);
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package ru.ifmo.first_wildfly.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import ru.ifmo.first_wildfly.dto.VehicleDto;
+
+/**
+ * CDI-событие об изменении транспортного средства. Публикуется из {@code VehicleService}
+ * внутри транзакции; наблюдатели, которым нужны только зафиксированные изменения,
+ * подписываются с {@code TransactionPhase.AFTER_SUCCESS}.
+ * <p>
+ * {@code before} и {@code after} — снимки до и после изменения
+ * ({@code before == null} при создании, {@code after == null} при удалении).
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class VehicleChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Integer vehicleId;
+    private final VehicleDto before;
+    private final VehicleDto after;
+
+    /**
+     * Номер записи в журнале vehicle_change, присваивается {@code VehicleChangeLog} при публикации.
+     */
+    @Setter
+    private Long sequence;
+
+    public static VehicleChangedEvent created(VehicleDto vehicle) {
+        return new VehicleChangedEvent(Type.CREATED, vehicle.getId(), null, vehicle);
+    }
+
+    public static VehicleChangedEvent updated(VehicleDto before, VehicleDto after) {
+        return new VehicleChangedEvent(Type.UPDATED, after.getId(), before, after);
+    }
+
+    public static VehicleChangedEvent deleted(VehicleDto vehicle) {
+        return new VehicleChangedEvent(Type.DELETED, vehicle.getId(), vehicle, null);
+    }
+}
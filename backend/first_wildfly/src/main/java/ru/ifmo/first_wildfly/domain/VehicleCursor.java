@@ -0,0 +1,42 @@
+package ru.ifmo.first_wildfly.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.ifmo.first_wildfly.exception.FirstException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Позиция в выборке для keyset-пагинации: последняя пара (значение поля сортировки, id)
+ * вместе с сортировкой, для которой она была выдана.
+ */
+@Data
+@AllArgsConstructor
+public class VehicleCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private String sort;
+    private String order;
+    private Integer id;
+    private String value;
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, sort, order, String.valueOf(id), value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static VehicleCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            if (parts.length != 4) {
+                throw new FirstException("Invalid cursor", 400);
+            }
+            return new VehicleCursor(parts[0], parts[1], Integer.valueOf(parts[2]), parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new FirstException("Invalid cursor", 400);
+        }
+    }
+}
@@ -9,4 +9,6 @@ public class VehiclePage {
     private Integer size = 20;
     private String sort = "id";
     private String order = "asc";
+    private String cursor;
+    private Boolean withTotal = true;
 }
\ No newline at end of file
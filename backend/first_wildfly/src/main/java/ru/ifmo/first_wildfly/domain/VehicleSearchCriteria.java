@@ -15,4 +15,30 @@ public class VehicleSearchCriteria {
     private BigDecimal minCapacity;
     private BigDecimal maxCapacity;
     private String fuelType;
+    private Long minCoordinateX;
+    private Long maxCoordinateX;
+    private Integer minCoordinateY;
+    private Integer maxCoordinateY;
+
+    /**
+     * Копия с приведенными к каноническому виду значениями: пустые строки заменены на null,
+     * имя — в нижнем регистре (фильтр по имени регистронезависимый).
+     * Равные нормализованные критерии задают одну и ту же выборку.
+     */
+    public VehicleSearchCriteria normalized() {
+        var copy = new VehicleSearchCriteria();
+        copy.setName(name == null || name.isEmpty() ? null : name.toLowerCase());
+        copy.setMinEnginePower(minEnginePower);
+        copy.setMaxEnginePower(maxEnginePower);
+        copy.setMinWheels(minWheels);
+        copy.setMaxWheels(maxWheels);
+        copy.setMinCapacity(minCapacity == null ? null : minCapacity.stripTrailingZeros());
+        copy.setMaxCapacity(maxCapacity == null ? null : maxCapacity.stripTrailingZeros());
+        copy.setFuelType(fuelType == null || fuelType.isEmpty() ? null : fuelType);
+        copy.setMinCoordinateX(minCoordinateX);
+        copy.setMaxCoordinateX(maxCoordinateX);
+        copy.setMinCoordinateY(minCoordinateY);
+        copy.setMaxCoordinateY(maxCoordinateY);
+        return copy;
+    }
 }
\ No newline at end of file
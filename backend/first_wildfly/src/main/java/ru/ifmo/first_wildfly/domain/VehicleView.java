@@ -0,0 +1,22 @@
+package ru.ifmo.first_wildfly.domain;
+
+import ru.ifmo.first_wildfly.domain.entity.FuelType;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Неизменяемая модель чтения транспортного средства. Заполняется конструктор-выражением
+ * прямо из запроса, минуя контекст персистентности и отслеживание изменений сущностей.
+ */
+public record VehicleView(
+        Integer id,
+        String name,
+        Long x,
+        Integer y,
+        ZonedDateTime creationDate,
+        Long enginePower,
+        Long numberOfWheels,
+        Float capacity,
+        FuelType fuelType,
+        Long version) {
+}
@@ -1,6 +1,7 @@
 package ru.ifmo.first_wildfly.domain.entity;
 
-import jakarta.persistence.*;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,17 +9,14 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Builder
-@Entity
-@Table(name = "coordinate")
+@Embeddable
 @NoArgsConstructor
 @AllArgsConstructor
 public class CoordinatesEntity {
 
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Integer id;
-
+    @Column(name = "coordinate_x", nullable = false)
     private long x;
 
+    @Column(name = "coordinate_y", nullable = false)
     private Integer y;
 }
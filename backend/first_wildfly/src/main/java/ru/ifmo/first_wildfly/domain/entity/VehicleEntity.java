@@ -6,26 +6,29 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import static jakarta.persistence.CascadeType.ALL;
 import static jakarta.persistence.EnumType.STRING;
 
 @Data
 @Builder
 @Entity
+@Cacheable
 @Table(name = "vehicle")
 @NoArgsConstructor
 @AllArgsConstructor
 public class VehicleEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vehicle_seq")
+    @SequenceGenerator(name = "vehicle_seq", sequenceName = "vehicle_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "name")
     private String name;
 
-    @ManyToOne(cascade = ALL)
-    @JoinColumn(name = "coordinate_id")
+    @Column(name = "name_lower", insertable = false, updatable = false)
+    private String nameLower;
+
+    @Embedded
     private CoordinatesEntity coordinates;
 
     @Column(name = "creation_date")
@@ -43,4 +46,8 @@ public class VehicleEntity {
     @Column(name = "fuel_type")
     @Enumerated(STRING)
     private FuelType fuelType;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
 }
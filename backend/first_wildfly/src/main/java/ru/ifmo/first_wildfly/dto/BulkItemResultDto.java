@@ -0,0 +1,62 @@
+package ru.ifmo.first_wildfly.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+@XmlRootElement(name = "bulkItemResult")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class BulkItemResultDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @XmlElement
+    private int index;
+
+    @XmlElement
+    private Integer id;
+
+    @XmlElement
+    private int status;
+
+    @XmlElement
+    private String message;
+
+    @XmlElement
+    private VehicleDto vehicle;
+
+    public BulkItemResultDto() {}
+
+    public BulkItemResultDto(int index, Integer id, int status, String message, VehicleDto vehicle) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.message = message;
+        this.vehicle = vehicle;
+    }
+
+    public static BulkItemResultDto success(int index, int status, VehicleDto vehicle) {
+        return new BulkItemResultDto(index, vehicle.getId(), status, null, vehicle);
+    }
+
+    public static BulkItemResultDto failure(int index, Integer id, int status, String message) {
+        return new BulkItemResultDto(index, id, status, message, null);
+    }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public Integer getId() { return id; }
+    public void setId(Integer id) { this.id = id; }
+
+    public int getStatus() { return status; }
+    public void setStatus(int status) { this.status = status; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public VehicleDto getVehicle() { return vehicle; }
+    public void setVehicle(VehicleDto vehicle) { this.vehicle = vehicle; }
+}
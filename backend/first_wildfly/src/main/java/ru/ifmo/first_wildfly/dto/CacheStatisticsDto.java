@@ -0,0 +1,64 @@
+package ru.ifmo.first_wildfly.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+/**
+ * Статистика региона кэша второго уровня для {@code VehicleEntity} по данным Hibernate Statistics.
+ */
+@XmlRootElement(name = "cacheStatistics")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CacheStatisticsDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @XmlElement
+    private String region;
+
+    @XmlElement
+    private long hits;
+
+    @XmlElement
+    private long misses;
+
+    @XmlElement
+    private long puts;
+
+    @XmlElement
+    private long elementsInMemory;
+
+    @XmlElement
+    private double hitRatio;
+
+    public CacheStatisticsDto() {}
+
+    public CacheStatisticsDto(String region, long hits, long misses, long puts, long elementsInMemory) {
+        this.region = region;
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+        this.elementsInMemory = elementsInMemory;
+        this.hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    public String getRegion() { return region; }
+    public void setRegion(String region) { this.region = region; }
+
+    public long getHits() { return hits; }
+    public void setHits(long hits) { this.hits = hits; }
+
+    public long getMisses() { return misses; }
+    public void setMisses(long misses) { this.misses = misses; }
+
+    public long getPuts() { return puts; }
+    public void setPuts(long puts) { this.puts = puts; }
+
+    public long getElementsInMemory() { return elementsInMemory; }
+    public void setElementsInMemory(long elementsInMemory) { this.elementsInMemory = elementsInMemory; }
+
+    public double getHitRatio() { return hitRatio; }
+    public void setHitRatio(double hitRatio) { this.hitRatio = hitRatio; }
+}
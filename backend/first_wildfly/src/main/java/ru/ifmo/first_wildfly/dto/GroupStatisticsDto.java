@@ -0,0 +1,75 @@
+package ru.ifmo.first_wildfly.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Агрегаты одной группы. count — все транспортные средства группы, valueCount — те,
+ * у которых метрика задана; sum, min, max, average и распределение считаются по ним.
+ */
+@XmlRootElement(name = "groupStatistics")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class GroupStatisticsDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @XmlElement
+    private String key;
+
+    @XmlElement
+    private long count;
+
+    @XmlElement
+    private long valueCount;
+
+    @XmlElement
+    private Double sum;
+
+    @XmlElement
+    private Double min;
+
+    @XmlElement
+    private Double max;
+
+    @XmlElement
+    private Double average;
+
+    @XmlElement(name = "bucket")
+    private List<HistogramBucketDto> histogram;
+
+    @XmlElement(name = "percentile")
+    private List<PercentileDto> percentiles;
+
+    public GroupStatisticsDto() {}
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public long getValueCount() { return valueCount; }
+    public void setValueCount(long valueCount) { this.valueCount = valueCount; }
+
+    public Double getSum() { return sum; }
+    public void setSum(Double sum) { this.sum = sum; }
+
+    public Double getMin() { return min; }
+    public void setMin(Double min) { this.min = min; }
+
+    public Double getMax() { return max; }
+    public void setMax(Double max) { this.max = max; }
+
+    public Double getAverage() { return average; }
+    public void setAverage(Double average) { this.average = average; }
+
+    public List<HistogramBucketDto> getHistogram() { return histogram; }
+    public void setHistogram(List<HistogramBucketDto> histogram) { this.histogram = histogram; }
+
+    public List<PercentileDto> getPercentiles() { return percentiles; }
+    public void setPercentiles(List<PercentileDto> percentiles) { this.percentiles = percentiles; }
+}
@@ -0,0 +1,48 @@
+package ru.ifmo.first_wildfly.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.List;
+
+@XmlRootElement(name = "groupedStatistics")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class GroupedStatisticsDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @XmlElement
+    private String groupBy;
+
+    @XmlElement
+    private String metric;
+
+    @XmlElement
+    private long total;
+
+    @XmlElement(name = "group")
+    private List<GroupStatisticsDto> groups;
+
+    public GroupedStatisticsDto() {}
+
+    public GroupedStatisticsDto(String groupBy, String metric, long total, List<GroupStatisticsDto> groups) {
+        this.groupBy = groupBy;
+        this.metric = metric;
+        this.total = total;
+        this.groups = groups;
+    }
+
+    public String getGroupBy() { return groupBy; }
+    public void setGroupBy(String groupBy) { this.groupBy = groupBy; }
+
+    public String getMetric() { return metric; }
+    public void setMetric(String metric) { this.metric = metric; }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public List<GroupStatisticsDto> getGroups() { return groups; }
+    public void setGroups(List<GroupStatisticsDto> groups) { this.groups = groups; }
+}
@@ -0,0 +1,43 @@
+package ru.ifmo.first_wildfly.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+/**
+ * Интервал гистограммы [from, to); последний интервал группы включает правую границу.
+ */
+@XmlRootElement(name = "histogramBucket")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class HistogramBucketDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @XmlElement
+    private double from;
+
+    @XmlElement
+    private double to;
+
+    @XmlElement
+    private long count;
+
+    public HistogramBucketDto() {}
+
+    public HistogramBucketDto(double from, double to, long count) {
+        this.from = from;
+        this.to = to;
+        this.count = count;
+    }
+
+    public double getFrom() { return from; }
+    public void setFrom(double from) { this.from = from; }
+
+    public double getTo() { return to; }
+    public void setTo(double to) { this.to = to; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+}
@@ -1,5 +1,6 @@
 package ru.ifmo.first_wildfly.dto;
 
+import jakarta.json.bind.annotation.JsonbTransient;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlElement;
@@ -13,21 +14,29 @@ public class PagedVehicleResponseDto implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    // в XML — элементы vehicle, в JSON — только массив content (swag.yml) через getContent
+    @JsonbTransient
     @XmlElement(name = "vehicle")
     private List<VehicleDto> vehicle;
 
     @XmlElement
-    private int totalElements;
+    private Integer totalElements;
 
     @XmlElement
-    private int totalPages;
+    private Integer totalPages;
 
     @XmlElement
     private int currentPage;
 
+    @XmlElement
+    private Boolean hasNext;
+
+    @XmlElement
+    private String nextCursor;
+
     public PagedVehicleResponseDto() {}
 
-    public PagedVehicleResponseDto(List<VehicleDto> vehicle, int totalElements, int totalPages, int currentPage) {
+    public PagedVehicleResponseDto(List<VehicleDto> vehicle, Integer totalElements, Integer totalPages, int currentPage) {
         this.vehicle = vehicle;
         this.totalElements = totalElements;
         this.totalPages = totalPages;
@@ -50,12 +59,18 @@ public class PagedVehicleResponseDto implements Serializable {
         this.vehicle = content;
     }
 
-    public int getTotalElements() { return totalElements; }
-    public void setTotalElements(int totalElements) { this.totalElements = totalElements; }
+    public Integer getTotalElements() { return totalElements; }
+    public void setTotalElements(Integer totalElements) { this.totalElements = totalElements; }
 
-    public int getTotalPages() { return totalPages; }
-    public void setTotalPages(int totalPages) { this.totalPages = totalPages; }
+    public Integer getTotalPages() { return totalPages; }
+    public void setTotalPages(Integer totalPages) { this.totalPages = totalPages; }
 
     public int getCurrentPage() { return currentPage; }
     public void setCurrentPage(int currentPage) { this.currentPage = currentPage; }
+
+    public Boolean getHasNext() { return hasNext; }
+    public void setHasNext(Boolean hasNext) { this.hasNext = hasNext; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package ru.ifmo.first_wildfly.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+@XmlRootElement(name = "percentile")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class PercentileDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @XmlElement
+    private double percentile;
+
+    @XmlElement
+    private double value;
+
+    public PercentileDto() {}
+
+    public PercentileDto(double percentile, double value) {
+        this.percentile = percentile;
+        this.value = value;
+    }
+
+    public double getPercentile() { return percentile; }
+    public void setPercentile(double percentile) { this.percentile = percentile; }
+
+    public double getValue() { return value; }
+    public void setValue(double value) { this.value = value; }
+}
@@ -0,0 +1,28 @@
+package ru.ifmo.first_wildfly.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+@XmlRootElement(name = "vehicleBulkUpdate")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class VehicleBulkUpdateDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @XmlElement
+    private Integer id;
+
+    @XmlElement
+    private VehicleUpdateDto vehicle;
+
+    public VehicleBulkUpdateDto() {}
+
+    public Integer getId() { return id; }
+    public void setId(Integer id) { this.id = id; }
+
+    public VehicleUpdateDto getVehicle() { return vehicle; }
+    public void setVehicle(VehicleUpdateDto vehicle) { this.vehicle = vehicle; }
+}
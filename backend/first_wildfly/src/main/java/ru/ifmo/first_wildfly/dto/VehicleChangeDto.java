@@ -0,0 +1,54 @@
+package ru.ifmo.first_wildfly.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+/**
+ * Запись журнала изменений: UPSERT с текущим состоянием транспортного средства
+ * или DELETE (tombstone) без тела.
+ */
+@XmlRootElement(name = "vehicleChange")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class VehicleChangeDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+
+    @XmlElement
+    private long sequence;
+
+    @XmlElement
+    private Integer vehicleId;
+
+    @XmlElement
+    private String type;
+
+    @XmlElement
+    private VehicleDto vehicle;
+
+    public VehicleChangeDto() {}
+
+    public VehicleChangeDto(long sequence, Integer vehicleId, String type, VehicleDto vehicle) {
+        this.sequence = sequence;
+        this.vehicleId = vehicleId;
+        this.type = type;
+        this.vehicle = vehicle;
+    }
+
+    public long getSequence() { return sequence; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+
+    public Integer getVehicleId() { return vehicleId; }
+    public void setVehicleId(Integer vehicleId) { this.vehicleId = vehicleId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public VehicleDto getVehicle() { return vehicle; }
+    public void setVehicle(VehicleDto vehicle) { this.vehicle = vehicle; }
+}
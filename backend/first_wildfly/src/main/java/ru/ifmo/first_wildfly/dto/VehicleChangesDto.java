@@ -0,0 +1,51 @@
+package ru.ifmo.first_wildfly.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.List;
+
+@XmlRootElement(name = "vehicleChanges")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class VehicleChangesDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @XmlElement(name = "change")
+    private List<VehicleChangeDto> changes;
+
+    @XmlElement
+    private long lastSequence;
+
+    @XmlElement
+    private boolean hasMore;
+
+    /**
+     * Номер последнего зафиксированного изменения: версия каталога на момент ответа.
+     */
+    @XmlElement
+    private long headSequence;
+
+    public VehicleChangesDto() {}
+
+    public VehicleChangesDto(List<VehicleChangeDto> changes, long lastSequence, boolean hasMore, long headSequence) {
+        this.changes = changes;
+        this.lastSequence = lastSequence;
+        this.hasMore = hasMore;
+        this.headSequence = headSequence;
+    }
+
+    public List<VehicleChangeDto> getChanges() { return changes; }
+    public void setChanges(List<VehicleChangeDto> changes) { this.changes = changes; }
+
+    public long getLastSequence() { return lastSequence; }
+    public void setLastSequence(long lastSequence) { this.lastSequence = lastSequence; }
+
+    public boolean getHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public long getHeadSequence() { return headSequence; }
+    public void setHeadSequence(long headSequence) { this.headSequence = headSequence; }
+}
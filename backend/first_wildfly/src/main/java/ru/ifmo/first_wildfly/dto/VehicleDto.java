@@ -37,11 +37,14 @@ public class VehicleDto implements Serializable {
     @XmlElement
     private FuelTypeDto fuelType;
 
+    @XmlElement
+    private Long version;
+
     public VehicleDto() {}
 
     public VehicleDto(Integer id, String name, CoordinatesDto coordinates,
                       String creationDate, Integer enginePower,
-                      Integer numberOfWheels, Float capacity, FuelTypeDto fuelType) {
+                      Integer numberOfWheels, Float capacity, FuelTypeDto fuelType, Long version) {
         this.id = id;
         this.name = name;
         this.coordinates = coordinates;
@@ -50,6 +53,7 @@ public class VehicleDto implements Serializable {
         this.numberOfWheels = numberOfWheels;
         this.capacity = capacity;
         this.fuelType = fuelType;
+        this.version = version;
     }
 
     public Integer getId() { return id; }
@@ -75,4 +79,7 @@ public class VehicleDto implements Serializable {
 
     public FuelTypeDto getFuelType() { return fuelType; }
     public void setFuelType(FuelTypeDto fuelType) { this.fuelType = fuelType; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
\ No newline at end of file
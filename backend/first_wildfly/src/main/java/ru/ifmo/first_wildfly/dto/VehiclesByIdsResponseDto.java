@@ -0,0 +1,34 @@
+package ru.ifmo.first_wildfly.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.List;
+
+@XmlRootElement(name = "vehiclesByIdsResponse")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class VehiclesByIdsResponseDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @XmlElement(name = "vehicle")
+    private List<VehicleDto> vehicles;
+
+    @XmlElement(name = "missingId")
+    private List<Integer> missingIds;
+
+    public VehiclesByIdsResponseDto() {}
+
+    public VehiclesByIdsResponseDto(List<VehicleDto> vehicles, List<Integer> missingIds) {
+        this.vehicles = vehicles;
+        this.missingIds = missingIds;
+    }
+
+    public List<VehicleDto> getVehicles() { return vehicles; }
+    public void setVehicles(List<VehicleDto> vehicles) { this.vehicles = vehicles; }
+
+    public List<Integer> getMissingIds() { return missingIds; }
+    public void setMissingIds(List<Integer> missingIds) { this.missingIds = missingIds; }
+}
@@ -0,0 +1,63 @@
+package ru.ifmo.first_wildfly.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Насколько копия, догоняющая основную БД по журналу vehicle_change, от нее отстает.
+ * <p>
+ * Отставание — возраст самого старого изменения, зафиксированного этим узлом и еще не примененного
+ * к копии. Чтение из копии допустимо, пока оно не больше заданного порога и копия применила все
+ * изменения, которые должен видеть запрос ({@link RequestSequence}).
+ */
+final class ReplicationProgress {
+
+    private static final int MAX_PENDING = 100_000;
+
+    /**
+     * Время фиксации изменений этого узла, еще не примененных к копии (номер → мс).
+     */
+    private final ConcurrentSkipListMap<Long, Long> pending = new ConcurrentSkipListMap<>();
+
+    private final long maxLagMillis;
+
+    private volatile boolean ready;
+    private volatile long appliedSequence;
+
+    ReplicationProgress(long maxLagMillis) {
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    boolean ready() {
+        return ready;
+    }
+
+    long appliedSequence() {
+        return appliedSequence;
+    }
+
+    boolean isReadable(long requiredSequence) {
+        return ready && appliedSequence >= requiredSequence && lagMillis() <= maxLagMillis;
+    }
+
+    long lagMillis() {
+        Map.Entry<Long, Long> oldest = pending.firstEntry();
+        return oldest == null ? 0 : System.currentTimeMillis() - oldest.getValue();
+    }
+
+    void committed(Long sequence) {
+        if (sequence != null && sequence > appliedSequence && pending.size() < MAX_PENDING) {
+            pending.putIfAbsent(sequence, System.currentTimeMillis());
+        }
+    }
+
+    void applied(long sequence) {
+        appliedSequence = sequence;
+        pending.headMap(sequence, true).clear();
+    }
+
+    void initialized(long sequence) {
+        applied(sequence);
+        ready = true;
+    }
+}
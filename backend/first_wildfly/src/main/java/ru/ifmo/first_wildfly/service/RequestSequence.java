@@ -0,0 +1,40 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.enterprise.context.RequestScoped;
+
+/**
+ * Номера журнала vehicle_change в рамках HTTP-запроса: {@code written} — последнее изменение,
+ * сделанное этим запросом, {@code required} — минимальный номер, который должна применить реплика,
+ * чтобы чтение из нее увидело свои записи клиента (заголовок X-Min-Change-Sequence) и этого запроса.
+ * Пока изменения запроса не зафиксированы и номера им не выданы ({@link #writing}), реплика не годится
+ * ни при каком номере.
+ */
+@RequestScoped
+public class RequestSequence {
+
+    private long written;
+    private long required;
+    private boolean writing;
+
+    public long written() {
+        return written;
+    }
+
+    public long required() {
+        return writing ? Long.MAX_VALUE : required;
+    }
+
+    public void writing() {
+        writing = true;
+    }
+
+    public void written(long sequence) {
+        written = Math.max(written, sequence);
+        writing = false;
+        require(sequence);
+    }
+
+    public void require(long sequence) {
+        required = Math.max(required, sequence);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import ru.ifmo.first_wildfly.dto.BulkItemResultDto;
+import ru.ifmo.first_wildfly.dto.VehicleBulkUpdateDto;
+import ru.ifmo.first_wildfly.dto.VehicleCreateDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static jakarta.ejb.TransactionAttributeType.NOT_SUPPORTED;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Пакетные операции над транспортными средствами. Пакет делится на части по {@link #CHUNK_SIZE},
+ * каждая часть выполняется в собственной транзакции {@link VehicleService}; ошибка фиксации
+ * одной части не откатывает уже зафиксированные.
+ */
+@Stateless
+@TransactionAttribute(NOT_SUPPORTED)
+public class VehicleBulkService {
+
+    private static final int CHUNK_SIZE = 500;
+
+    @EJB
+    private VehicleService vehicleService;
+
+    public List<BulkItemResultDto> createVehicles(List<VehicleCreateDto> vehicles) {
+        return inChunks(vehicles, vehicleService::createChunk, vehicle -> null);
+    }
+
+    public List<BulkItemResultDto> updateVehicles(List<VehicleBulkUpdateDto> vehicles) {
+        return inChunks(vehicles, vehicleService::updateChunk, vehicle -> nonNull(vehicle) ? vehicle.getId() : null);
+    }
+
+    public List<BulkItemResultDto> deleteVehicles(List<Integer> ids) {
+        return inChunks(ids, vehicleService::deleteChunk, Function.identity());
+    }
+
+    private <T> List<BulkItemResultDto> inChunks(List<T> items,
+                                                 BiFunction<List<T>, Integer, List<BulkItemResultDto>> chunkOperation,
+                                                 Function<T, Integer> idOf) {
+        if (isNull(items)) {
+            return List.of();
+        }
+        var results = new ArrayList<BulkItemResultDto>(items.size());
+        for (int from = 0; from < items.size(); from += CHUNK_SIZE) {
+            var chunk = new ArrayList<>(items.subList(from, Math.min(from + CHUNK_SIZE, items.size())));
+            try {
+                results.addAll(chunkOperation.apply(chunk, from));
+            } catch (RuntimeException e) {
+                String message = "Chunk was rolled back: " + rootMessage(e);
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(BulkItemResultDto.failure(from + i, idOf.apply(chunk.get(i)), 500, message));
+                }
+            }
+        }
+        return results;
+    }
+
+    private String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (nonNull(cause.getCause()) && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
@@ -0,0 +1,129 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ru.ifmo.first_wildfly.domain.VehicleChangedEvent;
+import ru.ifmo.first_wildfly.domain.VehicleView;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static jakarta.ejb.ConcurrencyManagementType.BEAN;
+
+/**
+ * Текущие строки vehicle в памяти — общий источник для структур в памяти: {@link VehicleNameIndex},
+ * {@link VehicleStatistics}, {@link VehicleSpatialIndex} и {@link VehicleColumnarStatistics}.
+ * <p>
+ * При старте номер журнала vehicle_change читается до строк, затем каталог догоняет журнал с этого номера
+ * ({@link VehicleChangeBatch}), как и копии таблицы. Изменение, попавшее и в загрузку, и в журнал после
+ * номера, применяется повторно без последствий: «до» берется из строки, которую держит сам каталог,
+ * поэтому повтор дает пустое изменение и пропускается. Загрузка и все изменения передаются структурам
+ * под одной блокировкой в порядке журнала.
+ * <p>
+ * Журнал читается после фиксации каждого изменения этого узла и по таймеру
+ * ({@link #CATCH_UP_INTERVAL_MILLIS}), если чтение после фиксации не удалось.
+ */
+@Singleton
+@Startup
+@DependsOn("DatabaseInitializer")
+@ConcurrencyManagement(BEAN)
+public class VehicleCatalog {
+
+    private static final long CATCH_UP_INTERVAL_MILLIS = 1000;
+    private static final int BATCH_SIZE = 500;
+
+    @PersistenceContext(unitName = "default")
+    private EntityManager entityManager;
+
+    @Resource
+    private TimerService timerService;
+
+    @EJB
+    private VehicleNameIndex nameIndex;
+
+    @EJB
+    private VehicleStatistics statistics;
+
+    @EJB
+    private VehicleSpatialIndex spatialIndex;
+
+    @EJB
+    private VehicleColumnarStatistics columnarStatistics;
+
+    // изменяются только под синхронизацией на this
+    private final Map<Integer, VehicleView> rows = new HashMap<>();
+    private volatile long appliedSequence;
+
+    @PostConstruct
+    public void load() {
+        synchronized (this) {
+            long sequence = VehicleChangeBatch.committedSequence(entityManager);
+            rows.clear();
+            for (Object row : entityManager.createNativeQuery(VehicleChangeBatch.SELECT_ROWS).getResultList()) {
+                VehicleView view = VehicleChangeBatch.view((Object[]) row);
+                rows.put(view.id(), view);
+            }
+            nameIndex.reset(rows.values());
+            statistics.reset(rows.values());
+            spatialIndex.reset(rows.values());
+            columnarStatistics.reset(rows.values());
+            appliedSequence = sequence;
+        }
+        timerService.createIntervalTimer(CATCH_UP_INTERVAL_MILLIS, CATCH_UP_INTERVAL_MILLIS, new TimerConfig(null, false));
+    }
+
+    public void onVehicleChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) VehicleChangedEvent event) {
+        Long sequence = event.getSequence();
+        if (sequence == null || sequence > appliedSequence) {
+            catchUp();
+        }
+    }
+
+    /**
+     * Применяет журнал после последнего примененного номера.
+     */
+    @Timeout
+    public void catchUp() {
+        try {
+            synchronized (this) {
+                VehicleChangeBatch batch;
+                do {
+                    batch = VehicleChangeBatch.read(entityManager, appliedSequence, BATCH_SIZE);
+                    for (Object[] row : batch.rows()) {
+                        VehicleView after = VehicleChangeBatch.view(row);
+                        changed(rows.put(after.id(), after), after);
+                    }
+                    for (Integer id : batch.deletedIds()) {
+                        changed(rows.remove(id), null);
+                    }
+                    appliedSequence = batch.lastSequence();
+                } while (batch.size() == BATCH_SIZE);
+            }
+        } catch (Exception e) {
+            System.out.println("Vehicle catalog catch-up failed: " + e.getMessage());
+        }
+    }
+
+    private void changed(VehicleView before, VehicleView after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        nameIndex.apply(before, after);
+        statistics.apply(before, after);
+        spatialIndex.apply(before, after);
+        columnarStatistics.apply(before, after);
+    }
+}
@@ -0,0 +1,196 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.persistence.EntityManager;
+import ru.ifmo.first_wildfly.config.DatabaseInitializer;
+import ru.ifmo.first_wildfly.domain.VehicleView;
+import ru.ifmo.first_wildfly.domain.entity.FuelType;
+import ru.ifmo.first_wildfly.dto.VehicleChangeDto;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пачка журнала vehicle_change для копий таблицы vehicle, которые догоняют основную БД по журналу
+ * ({@link VehicleReadReplica}, {@link VehicleCatalog}). Изменения свернуты по транспортным средствам:
+ * для измененных берется текущая строка основной БД, для удаленных — только id.
+ *
+ * @param size         число прочитанных записей журнала
+ * @param lastSequence номер последней из них
+ * @param rows         строки vehicle в порядке {@link #COLUMNS}
+ */
+record VehicleChangeBatch(int size, long lastSequence, List<Object[]> rows, List<Integer> deletedIds) {
+
+    static final String COLUMNS = "id, name, coordinate_x, coordinate_y, creation_date, " +
+            "engine_power, number_of_wheels, capacity, fuel_type, version";
+
+    static final String SELECT_ROWS = "SELECT " + COLUMNS + " FROM vehicle";
+
+    private static final String MERGE_ROW = "MERGE INTO vehicle(" + COLUMNS + ") KEY(id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_ROW = "DELETE FROM vehicle WHERE id = ?";
+
+    private static final String DELETE_SUPERSEDED = "DELETE FROM vehicle_change c WHERE EXISTS (" +
+            "SELECT 1 FROM vehicle_change later WHERE later.vehicle_id = c.vehicle_id AND later.seq > c.seq)";
+
+    private static final String LAST_EXPIRED_DELETE = "SELECT MAX(seq) FROM vehicle_change " +
+            "WHERE change_type = '" + VehicleChangeDto.DELETE + "' AND changed_at < ?";
+
+    private static final String DELETE_EXPIRED = "DELETE FROM vehicle_change " +
+            "WHERE change_type = '" + VehicleChangeDto.DELETE + "' AND seq <= ?";
+
+    private static final String RAISE_COMPACTED_SEQUENCE = "UPDATE vehicle_change_counter " +
+            "SET compacted_seq = GREATEST(compacted_seq, ?) WHERE id = 1";
+
+    /**
+     * Номер последней зафиксированной записи журнала: все записи с номером не больше него уже видны читателям.
+     */
+    static long committedSequence(EntityManager entityManager) {
+        return ((Number) entityManager.createNativeQuery(
+                "SELECT seq FROM vehicle_change_counter WHERE id = 1").getSingleResult()).longValue();
+    }
+
+    /**
+     * Номер последней записи DELETE, удаленной при сжатии ({@link #compact}); 0, если такие не удалялись.
+     * Читатель, прошедший меньший номер, мог пропустить удаление и должен перечитать журнал с нуля.
+     */
+    static long compactedSequence(EntityManager entityManager) {
+        return ((Number) entityManager.createNativeQuery(
+                "SELECT compacted_seq FROM vehicle_change_counter WHERE id = 1").getSingleResult()).longValue();
+    }
+
+    /**
+     * Строка vehicle в порядке {@link #COLUMNS}.
+     */
+    static VehicleView view(Object[] row) {
+        Object creationDate = row[4];
+        return new VehicleView(
+                ((Number) row[0]).intValue(),
+                (String) row[1],
+                ((Number) row[2]).longValue(),
+                ((Number) row[3]).intValue(),
+                creationDate instanceof OffsetDateTime offset ? offset.toZonedDateTime() : (ZonedDateTime) creationDate,
+                row[5] != null ? ((Number) row[5]).longValue() : null,
+                row[6] != null ? ((Number) row[6]).longValue() : null,
+                ((Number) row[7]).floatValue(),
+                FuelType.valueOf((String) row[8]),
+                ((Number) row[9]).longValue()
+        );
+    }
+
+    static VehicleChangeBatch read(EntityManager entityManager, long afterSequence, int limit) {
+        List<?> changes = entityManager.createNativeQuery(
+                        "SELECT seq, vehicle_id, change_type FROM vehicle_change WHERE seq > ?1 ORDER BY seq")
+                .setParameter(1, afterSequence)
+                .setMaxResults(limit)
+                .getResultList();
+
+        long lastSequence = afterSequence;
+        Map<Integer, Boolean> deletedById = new LinkedHashMap<>();
+        for (Object change : changes) {
+            Object[] columns = (Object[]) change;
+            lastSequence = ((Number) columns[0]).longValue();
+            deletedById.put(((Number) columns[1]).intValue(), VehicleChangeDto.DELETE.equals(columns[2]));
+        }
+
+        List<Integer> upserted = new ArrayList<>();
+        deletedById.forEach((id, deleted) -> {
+            if (!deleted) {
+                upserted.add(id);
+            }
+        });
+        List<Object[]> rows = new ArrayList<>(upserted.size());
+        if (!upserted.isEmpty()) {
+            for (Object row : entityManager.createNativeQuery(SELECT_ROWS + " WHERE id IN (?1)")
+                    .setParameter(1, upserted)
+                    .getResultList()) {
+                rows.add((Object[]) row);
+                // строка есть в основной БД — удалять не нужно, даже если в журнале было удаление раньше
+                deletedById.remove(((Number) ((Object[]) row)[0]).intValue());
+            }
+        }
+        // оставшиеся id удалены: либо по журналу, либо строки уже нет в основной БД
+        return new VehicleChangeBatch(changes.size(), lastSequence, rows, new ArrayList<>(deletedById.keySet()));
+    }
+
+    /**
+     * Сжимает журнал vehicle_change основной БД и возвращает число удаленных записей.
+     * <p>
+     * Записи, за которыми есть более поздняя запись того же транспортного средства, удаляются всегда:
+     * читатели сворачивают журнал по транспортным средствам и берут текущую строку, поэтому результат чтения
+     * с любого номера от этого не меняется. Последняя запись DELETE удаляется, если сделана раньше
+     * {@code deletesBefore}; номер последней такой записи сохраняется в {@code compacted_seq}
+     * (см. {@link #compactedSequence}). После сжатия в журнале не больше одной записи на транспортное средство.
+     */
+    static int compact(Connection connection, OffsetDateTime deletesBefore) throws SQLException {
+        int removed;
+        try (Statement superseded = connection.createStatement()) {
+            removed = superseded.executeUpdate(DELETE_SUPERSEDED);
+        }
+        long lastExpired;
+        try (PreparedStatement select = connection.prepareStatement(LAST_EXPIRED_DELETE)) {
+            select.setObject(1, deletesBefore);
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                lastExpired = rs.getLong(1);
+            }
+        }
+        if (lastExpired > 0) {
+            try (PreparedStatement expired = connection.prepareStatement(DELETE_EXPIRED);
+                 PreparedStatement raise = connection.prepareStatement(RAISE_COMPACTED_SEQUENCE)) {
+                expired.setLong(1, lastExpired);
+                removed += expired.executeUpdate();
+                raise.setLong(1, lastExpired);
+                raise.executeUpdate();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Пересоздает в копии таблицу vehicle с той же схемой и индексами, что и в основной БД.
+     */
+    static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS vehicle");
+            statement.execute(DatabaseInitializer.CREATE_VEHICLE_TABLE);
+            statement.execute(DatabaseInitializer.ADD_NAME_LOWER_COLUMN);
+            for (String index : DatabaseInitializer.INDEXES) {
+                statement.execute(index);
+            }
+        }
+    }
+
+    /**
+     * Записывает строки (MERGE по id) и удаления в копию одной транзакцией.
+     */
+    static void apply(Connection connection, Collection<Object[]> rows, Collection<Integer> deletedIds) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement merge = connection.prepareStatement(MERGE_ROW);
+             PreparedStatement delete = connection.prepareStatement(DELETE_ROW)) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    merge.setObject(i + 1, row[i]);
+                }
+                merge.addBatch();
+            }
+            for (Integer id : deletedIds) {
+                delete.setInt(1, id);
+                delete.addBatch();
+            }
+            merge.executeBatch();
+            delete.executeBatch();
+        }
+        connection.commit();
+    }
+}
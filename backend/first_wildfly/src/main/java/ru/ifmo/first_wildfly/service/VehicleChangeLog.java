@@ -0,0 +1,129 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.hibernate.Session;
+import ru.ifmo.first_wildfly.domain.VehicleChangedEvent;
+import ru.ifmo.first_wildfly.dto.VehicleChangeDto;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Пишет журнал изменений vehicle_change в той же транзакции, что и само изменение.
+ * <p>
+ * Изменения копятся до конца транзакции и записываются перед ее фиксацией: одним оператором
+ * строка-счетчик vehicle_change_counter сдвигается на число изменений транзакции, и записи получают
+ * номера из зарезервированного блока, затем вставляются одним JDBC-пакетом. Блокировка строки-счетчика
+ * держится только от резервирования до коммита, а не всю транзакцию, поэтому пишущие транзакции
+ * ждут друг друга лишь на время фиксации. Номера по-прежнему фиксируются строго по возрастанию:
+ * читатель, прошедший номер N, не пропустит запись с меньшим номером, зафиксированную позже.
+ * <p>
+ * Номер записи сохраняется в событии и в {@link RequestSequence} для чтения своих записей с реплики;
+ * до фиксации запрос читает только основную БД.
+ * <p>
+ * Раз в 10 минут журнал сжимается ({@link VehicleChangeBatch#compact}); записи DELETE хранятся
+ * {@code vehicle.change-log.delete-retention-hours} часов (по умолчанию 168).
+ */
+@Stateless
+public class VehicleChangeLog {
+
+    private static final String RESERVE_SQL = "SELECT seq FROM FINAL TABLE (" +
+            "UPDATE vehicle_change_counter SET seq = seq + ? WHERE id = 1)";
+
+    private static final String INSERT_SQL = "INSERT INTO vehicle_change(seq, vehicle_id, change_type) VALUES (?, ?, ?)";
+
+    private static final String PENDING_CHANGES = VehicleChangeLog.class.getName() + ".pending";
+
+    private static final Duration DELETE_RETENTION =
+            Duration.ofHours(Long.getLong("vehicle.change-log.delete-retention-hours", 168));
+
+    @PersistenceContext(unitName = "default")
+    private EntityManager entityManager;
+
+    @Inject
+    private RequestSequence requestSequence;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    public void onVehicleChanged(@Observes VehicleChangedEvent event) {
+        @SuppressWarnings("unchecked")
+        List<VehicleChangedEvent> pending = (List<VehicleChangedEvent>) transactionRegistry.getResource(PENDING_CHANGES);
+        if (isNull(pending)) {
+            List<VehicleChangedEvent> changes = new ArrayList<>();
+            transactionRegistry.putResource(PENDING_CHANGES, changes);
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    append(changes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                }
+            });
+            pending = changes;
+        }
+        pending.add(event);
+        requestSequence.writing();
+    }
+
+    @Schedule(minute = "*/10", hour = "*", persistent = false)
+    public void compact() {
+        OffsetDateTime deletesBefore = OffsetDateTime.now().minus(DELETE_RETENTION);
+        int removed = entityManager.unwrap(Session.class)
+                .doReturningWork(connection -> VehicleChangeBatch.compact(connection, deletesBefore));
+        if (removed > 0) {
+            System.out.println("Vehicle change log compacted: " + removed + " entries removed");
+        }
+    }
+
+    private void append(List<VehicleChangedEvent> changes) {
+        long last = entityManager.unwrap(Session.class).doReturningWork(connection -> append(connection, changes));
+        long sequence = last - changes.size();
+        for (VehicleChangedEvent change : changes) {
+            change.setSequence(++sequence);
+        }
+        requestSequence.written(last);
+    }
+
+    private static long append(Connection connection, List<VehicleChangedEvent> changes) throws SQLException {
+        long last;
+        try (PreparedStatement reserve = connection.prepareStatement(RESERVE_SQL)) {
+            reserve.setInt(1, changes.size());
+            try (ResultSet rs = reserve.executeQuery()) {
+                rs.next();
+                last = rs.getLong(1);
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+            long sequence = last - changes.size();
+            for (VehicleChangedEvent change : changes) {
+                insert.setLong(1, ++sequence);
+                insert.setInt(2, change.getVehicleId());
+                insert.setString(3, change.getType() == VehicleChangedEvent.Type.DELETED
+                        ? VehicleChangeDto.DELETE
+                        : VehicleChangeDto.UPSERT);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        return last;
+    }
+}
@@ -0,0 +1,267 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.Singleton;
+import ru.ifmo.first_wildfly.domain.VehicleView;
+import ru.ifmo.first_wildfly.domain.entity.FuelType;
+import ru.ifmo.first_wildfly.dto.GroupStatisticsDto;
+import ru.ifmo.first_wildfly.dto.GroupedStatisticsDto;
+import ru.ifmo.first_wildfly.dto.HistogramBucketDto;
+import ru.ifmo.first_wildfly.dto.PercentileDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+
+import static jakarta.ejb.ConcurrencyManagementType.BEAN;
+import static java.util.Objects.isNull;
+
+/**
+ * Столбцовый снимок числовых полей транспортных средств для группировок, гистограмм и перцентилей.
+ * <p>
+ * Каждое поле хранится в отдельном примитивном массиве (long/float/byte), запрос — один проход по ним
+ * без обращения к БД и без объектов на строку. Изменения из {@link VehicleCatalog} применяются к рабочим
+ * массивам; неизменяемая копия для чтения делается лениво при первом запросе после изменений,
+ * поэтому пакет изменений стоит одного копирования.
+ */
+@Singleton
+@ConcurrencyManagement(BEAN)
+public class VehicleColumnarStatistics {
+
+    public static final Set<String> GROUP_BY = Set.of("none", "fuelType", "numberOfWheels");
+    public static final Set<String> METRICS = Set.of("enginePower", "numberOfWheels", "capacity");
+
+    /**
+     * engine_power и number_of_wheels в БД строго положительны, поэтому 0 означает «не задано».
+     */
+    private static final long ABSENT = 0;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final FuelType[] FUEL_TYPES = FuelType.values();
+
+    private record Snapshot(int size, long[] enginePower, long[] wheels, float[] capacity, byte[] fuelType) {
+    }
+
+    // рабочие столбцы, изменяются только под синхронизацией на this
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private long[] enginePower = new long[INITIAL_CAPACITY];
+    private long[] wheels = new long[INITIAL_CAPACITY];
+    private float[] capacity = new float[INITIAL_CAPACITY];
+    private byte[] fuelType = new byte[INITIAL_CAPACITY];
+    private final Map<Integer, Integer> rowById = new HashMap<>();
+
+    /**
+     * Копия для чтения; null — рабочие столбцы изменились и копию нужно сделать заново.
+     */
+    private volatile Snapshot snapshot;
+
+    public void reset(Collection<VehicleView> vehicles) {
+        synchronized (this) {
+            size = 0;
+            rowById.clear();
+            vehicles.forEach(this::upsert);
+            snapshot = null;
+        }
+    }
+
+    public void apply(VehicleView before, VehicleView after) {
+        synchronized (this) {
+            if (isNull(after)) {
+                remove(before.id());
+            } else {
+                upsert(after);
+            }
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Агрегаты метрики {@code metric} по группам {@code groupBy} за один проход по снимку.
+     *
+     * @param buckets     число интервалов гистограммы в каждой группе, 0 — без гистограммы
+     * @param percentiles запрошенные перцентили (0..100], считаются по методу ближайшего ранга
+     */
+    public GroupedStatisticsDto compute(String groupBy, String metric, int buckets, double[] percentiles) {
+        Snapshot s = snapshot();
+
+        IntToLongFunction key = switch (groupBy) {
+            case "fuelType" -> i -> s.fuelType()[i];
+            case "numberOfWheels" -> i -> s.wheels()[i];
+            default -> i -> 0;
+        };
+        IntPredicate present = switch (metric) {
+            case "enginePower" -> i -> s.enginePower()[i] != ABSENT;
+            case "numberOfWheels" -> i -> s.wheels()[i] != ABSENT;
+            default -> i -> true;
+        };
+        IntToDoubleFunction value = switch (metric) {
+            case "enginePower" -> i -> s.enginePower()[i];
+            case "numberOfWheels" -> i -> s.wheels()[i];
+            default -> i -> s.capacity()[i];
+        };
+
+        Map<Long, Group> groups = new TreeMap<>();
+        for (int i = 0; i < s.size(); i++) {
+            Group group = groups.computeIfAbsent(key.applyAsLong(i), k -> new Group());
+            group.count++;
+            if (present.test(i)) {
+                group.add(value.applyAsDouble(i));
+            }
+        }
+
+        List<GroupStatisticsDto> result = new ArrayList<>(groups.size());
+        groups.forEach((groupKey, group) -> result.add(group.toDto(label(groupBy, groupKey), buckets, percentiles)));
+        return new GroupedStatisticsDto(groupBy, metric, s.size(), result);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = new Snapshot(size,
+                        Arrays.copyOf(enginePower, size),
+                        Arrays.copyOf(wheels, size),
+                        Arrays.copyOf(capacity, size),
+                        Arrays.copyOf(fuelType, size));
+            }
+            return snapshot;
+        }
+    }
+
+    private void upsert(VehicleView vehicle) {
+        Integer row = rowById.get(vehicle.id());
+        if (isNull(row)) {
+            ensureCapacity(size + 1);
+            row = size++;
+            rowById.put(vehicle.id(), row);
+            ids[row] = vehicle.id();
+        }
+        enginePower[row] = isNull(vehicle.enginePower()) ? ABSENT : vehicle.enginePower();
+        wheels[row] = isNull(vehicle.numberOfWheels()) ? ABSENT : vehicle.numberOfWheels();
+        capacity[row] = isNull(vehicle.capacity()) ? 0F : vehicle.capacity();
+        fuelType[row] = (byte) vehicle.fuelType().ordinal();
+    }
+
+    /**
+     * Удаляет строку, перенося на ее место последнюю, чтобы столбцы оставались плотными.
+     */
+    private void remove(Integer id) {
+        Integer row = rowById.remove(id);
+        if (isNull(row)) {
+            return;
+        }
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            enginePower[row] = enginePower[last];
+            wheels[row] = wheels[last];
+            capacity[row] = capacity[last];
+            fuelType[row] = fuelType[last];
+            rowById.put(ids[row], row);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        enginePower = Arrays.copyOf(enginePower, newCapacity);
+        wheels = Arrays.copyOf(wheels, newCapacity);
+        capacity = Arrays.copyOf(capacity, newCapacity);
+        fuelType = Arrays.copyOf(fuelType, newCapacity);
+    }
+
+    private static String label(String groupBy, long key) {
+        return switch (groupBy) {
+            case "fuelType" -> FUEL_TYPES[(int) key].name();
+            case "numberOfWheels" -> key == ABSENT ? "NONE" : String.valueOf(key);
+            default -> "ALL";
+        };
+    }
+
+    /**
+     * Накопитель одной группы: агрегаты и значения метрики для гистограммы и перцентилей.
+     */
+    private static final class Group {
+
+        private long count;
+        private int valueCount;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double[] values = new double[16];
+
+        private void add(double value) {
+            if (valueCount == values.length) {
+                values = Arrays.copyOf(values, valueCount * 2);
+            }
+            values[valueCount++] = value;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        private GroupStatisticsDto toDto(String key, int buckets, double[] percentiles) {
+            var dto = new GroupStatisticsDto();
+            dto.setKey(key);
+            dto.setCount(count);
+            dto.setValueCount(valueCount);
+            if (valueCount == 0) {
+                return dto;
+            }
+            dto.setSum(sum);
+            dto.setMin(min);
+            dto.setMax(max);
+            dto.setAverage(sum / valueCount);
+            if (buckets > 0) {
+                dto.setHistogram(histogram(buckets));
+            }
+            if (percentiles.length > 0) {
+                dto.setPercentiles(percentiles(percentiles));
+            }
+            return dto;
+        }
+
+        private List<HistogramBucketDto> histogram(int buckets) {
+            long[] counts = new long[buckets];
+            double width = (max - min) / buckets;
+            for (int i = 0; i < valueCount; i++) {
+                int bucket = width == 0 ? 0 : (int) ((values[i] - min) / width);
+                counts[Math.min(bucket, buckets - 1)]++;
+            }
+            List<HistogramBucketDto> histogram = new ArrayList<>(buckets);
+            for (int b = 0; b < buckets; b++) {
+                double from = min + b * width;
+                double to = b == buckets - 1 ? max : from + width;
+                histogram.add(new HistogramBucketDto(from, to, counts[b]));
+            }
+            return histogram;
+        }
+
+        private List<PercentileDto> percentiles(double[] percentiles) {
+            double[] sorted = Arrays.copyOf(values, valueCount);
+            Arrays.sort(sorted);
+            List<PercentileDto> result = new ArrayList<>(percentiles.length);
+            for (double p : percentiles) {
+                int rank = (int) Math.ceil(p / 100 * valueCount);
+                result.add(new PercentileDto(p, sorted[Math.max(0, Math.min(rank, valueCount) - 1)]));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import ru.ifmo.first_wildfly.domain.VehicleChangedEvent;
+import ru.ifmo.first_wildfly.domain.VehicleSearchCriteria;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jakarta.ejb.ConcurrencyManagementType.BEAN;
+
+/**
+ * Кэш результатов COUNT для {@link VehicleService#getVehicles}, ключ — нормализованные критерии поиска.
+ * Полностью сбрасывается после фиксации любой транзакции, изменившей транспортные средства,
+ * и после применения изменений к реплике чтения.
+ */
+@Singleton
+@ConcurrencyManagement(BEAN)
+public class VehicleCountCache {
+
+    private static final int MAX_ENTRIES = 1024;
+
+    private final Map<VehicleSearchCriteria, Integer> counts = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public Integer get(VehicleSearchCriteria criteria) {
+        return counts.get(criteria);
+    }
+
+    /**
+     * Сохраняет значение, только если с момента {@link #generation()}, прочитанного до запроса к БД,
+     * не было инвалидации — иначе подсчет мог видеть данные до коммита.
+     */
+    public void put(VehicleSearchCriteria criteria, int count, long observedGeneration) {
+        if (counts.size() >= MAX_ENTRIES) {
+            counts.clear();
+        }
+        counts.put(criteria, count);
+        if (generation.get() != observedGeneration) {
+            counts.remove(criteria);
+        }
+    }
+
+    public void onVehicleChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) VehicleChangedEvent event) {
+        invalidate();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        counts.clear();
+    }
+}
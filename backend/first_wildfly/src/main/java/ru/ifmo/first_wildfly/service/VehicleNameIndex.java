@@ -0,0 +1,86 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.Singleton;
+import ru.ifmo.first_wildfly.domain.VehicleView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static jakarta.ejb.ConcurrencyManagementType.BEAN;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Индекс имен транспортных средств в памяти для поиска по началу имени без учета регистра.
+ * <p>
+ * Имена разложены по длине, внутри длины — упорядоченная карта по ключу «имя в нижнем регистре,
+ * символ {@code \0}, дополненный нулями id», поэтому имена с заданным началом в карте одной длины лежат
+ * в одном непрерывном диапазоне. Результат ранжирован по близости к запросу: сначала точное совпадение,
+ * затем более короткие имена (меньше недостающих символов), при равной длине — по алфавиту и id.
+ * Поиск обходит длины по возрастанию и останавливается, набрав {@code limit} записей:
+ * O(d·log n + limit), где d — число различных длин имен. Наполняется из {@link VehicleCatalog}.
+ */
+@Singleton
+@ConcurrencyManagement(BEAN)
+public class VehicleNameIndex {
+
+    private final ConcurrentSkipListMap<Integer, ConcurrentSkipListMap<String, VehicleView>> byLength =
+            new ConcurrentSkipListMap<>();
+
+    private final Map<Integer, String> keysById = new ConcurrentHashMap<>();
+
+    public List<VehicleView> search(String prefix, int limit) {
+        String from = isNull(prefix) ? "" : prefix.toLowerCase();
+        List<VehicleView> result = new ArrayList<>(Math.min(limit, 64));
+        for (ConcurrentSkipListMap<String, VehicleView> names : byLength.tailMap(from.length()).values()) {
+            for (Map.Entry<String, VehicleView> entry : names.tailMap(from).entrySet()) {
+                if (result.size() >= limit || !entry.getKey().startsWith(from)) {
+                    break;
+                }
+                result.add(entry.getValue());
+            }
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    public void reset(Collection<VehicleView> vehicles) {
+        byLength.clear();
+        keysById.clear();
+        vehicles.forEach(this::put);
+    }
+
+    public void apply(VehicleView before, VehicleView after) {
+        if (nonNull(before)) {
+            remove(before.id());
+        }
+        if (nonNull(after)) {
+            put(after);
+        }
+    }
+
+    private void put(VehicleView vehicle) {
+        String name = vehicle.name().toLowerCase();
+        String key = String.format("%s\0%010d", name, vehicle.id());
+        byLength.computeIfAbsent(name.length(), length -> new ConcurrentSkipListMap<>()).put(key, vehicle);
+        keysById.put(vehicle.id(), key);
+    }
+
+    private void remove(Integer id) {
+        String key = keysById.remove(id);
+        if (isNull(key)) {
+            return;
+        }
+        byLength.computeIfPresent(key.indexOf('\0'), (length, names) -> {
+            names.remove(key);
+            return names.isEmpty() ? null : names;
+        });
+    }
+}
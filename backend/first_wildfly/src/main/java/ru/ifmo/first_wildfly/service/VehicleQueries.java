@@ -0,0 +1,291 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.persistence.TypedQuery;
+import ru.ifmo.first_wildfly.domain.VehicleSearchCriteria;
+import ru.ifmo.first_wildfly.domain.entity.FuelType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.util.Objects.isNull;
+
+/**
+ * JPQL-запросы выборки транспортных средств (и SQL той же формы для EXPLAIN), по одному тексту на форму
+ * запроса: набор заданных фильтров, поле и направление сортировки, вид запроса. Текст строится при первом
+ * обращении и кэшируется, а Hibernate кэширует разбор по тексту (query plan cache) — повторный запрос
+ * той же формы только связывает параметры, без построения дерева Criteria и поиска атрибутов по строкам.
+ */
+final class VehicleQueries {
+
+    static final Set<String> SORT_FIELDS = Set.of("id", "name", "enginePower", "numberOfWheels", "capacity", "fuelType");
+
+    private static final String SELECT_VIEW = "SELECT new ru.ifmo.first_wildfly.domain.VehicleView(" +
+            "v.id, v.name, v.coordinates.x, v.coordinates.y, v.creationDate, " +
+            "v.enginePower, v.numberOfWheels, v.capacity, v.fuelType, v.version) FROM VehicleEntity v";
+
+    private static final String SELECT_COUNT = "SELECT COUNT(v) FROM VehicleEntity v";
+
+    enum Kind {
+        /** страница по смещению */
+        PAGE,
+        /** первая страница keyset-пагинации */
+        CURSOR_FIRST,
+        /** страница keyset-пагинации после курсора */
+        CURSOR_AFTER,
+        /** страница keyset-пагинации после курсора, у которого значение сортировки NULL */
+        CURSOR_AFTER_NULL,
+        COUNT,
+        /** потоковая выгрузка в порядке id */
+        EXPORT
+    }
+
+    /**
+     * Условие фильтра (JPQL и SQL по таблице vehicle) и значение его параметра; null — фильтр в критериях не задан.
+     */
+    enum Filter {
+        NAME("name", "v.nameLower LIKE :name", "name_lower LIKE ?",
+                c -> isNull(c.getName()) || c.getName().isEmpty() ? null : nameSubstringPattern(c.getName())),
+        MIN_ENGINE_POWER("minEnginePower", "v.enginePower >= :minEnginePower", "engine_power >= ?",
+                c -> isNull(c.getMinEnginePower()) ? null : c.getMinEnginePower().longValue()),
+        MAX_ENGINE_POWER("maxEnginePower", "v.enginePower <= :maxEnginePower", "engine_power <= ?",
+                c -> isNull(c.getMaxEnginePower()) ? null : c.getMaxEnginePower().longValue()),
+        MIN_WHEELS("minWheels", "v.numberOfWheels >= :minWheels", "number_of_wheels >= ?",
+                c -> isNull(c.getMinWheels()) ? null : c.getMinWheels().longValue()),
+        MAX_WHEELS("maxWheels", "v.numberOfWheels <= :maxWheels", "number_of_wheels <= ?",
+                c -> isNull(c.getMaxWheels()) ? null : c.getMaxWheels().longValue()),
+        MIN_CAPACITY("minCapacity", "v.capacity > :minCapacity", "capacity > ?",
+                c -> isNull(c.getMinCapacity()) ? null : c.getMinCapacity().floatValue()),
+        MAX_CAPACITY("maxCapacity", "v.capacity <= :maxCapacity", "capacity <= ?",
+                c -> isNull(c.getMaxCapacity()) ? null : c.getMaxCapacity().floatValue()),
+        FUEL_TYPE("fuelType", "v.fuelType = :fuelType", "fuel_type = ?",
+                c -> isNull(c.getFuelType()) || c.getFuelType().isEmpty()
+                        ? null
+                        : FuelType.getByName(c.getFuelType()).orElse(null)),
+        MIN_COORDINATE_X("minCoordinateX", "v.coordinates.x >= :minCoordinateX", "coordinate_x >= ?",
+                VehicleSearchCriteria::getMinCoordinateX),
+        MAX_COORDINATE_X("maxCoordinateX", "v.coordinates.x <= :maxCoordinateX", "coordinate_x <= ?",
+                VehicleSearchCriteria::getMaxCoordinateX),
+        MIN_COORDINATE_Y("minCoordinateY", "v.coordinates.y >= :minCoordinateY", "coordinate_y >= ?",
+                VehicleSearchCriteria::getMinCoordinateY),
+        MAX_COORDINATE_Y("maxCoordinateY", "v.coordinates.y <= :maxCoordinateY", "coordinate_y <= ?",
+                VehicleSearchCriteria::getMaxCoordinateY);
+
+        private static final Filter[] VALUES = values();
+
+        private final String parameter;
+        private final String clause;
+        private final String sqlClause;
+        private final Function<VehicleSearchCriteria, Object> value;
+
+        Filter(String parameter, String clause, String sqlClause, Function<VehicleSearchCriteria, Object> value) {
+            this.parameter = parameter;
+            this.clause = clause;
+            this.sqlClause = sqlClause;
+            this.value = value;
+        }
+    }
+
+    record Shape(int filters, String sort, boolean desc, Kind kind) {
+    }
+
+    /**
+     * Значения заданных фильтров. {@code empty} — критерии заведомо не совпадают ни с одной записью
+     * (неизвестный тип топлива), запрос к БД не нужен.
+     */
+    record Bound(int mask, Object[] values, boolean empty) {
+
+        static Bound of(VehicleSearchCriteria criteria) {
+            Object[] values = new Object[Filter.VALUES.length];
+            int mask = 0;
+            for (Filter filter : Filter.VALUES) {
+                Object value = filter.value.apply(criteria);
+                if (value != null) {
+                    values[filter.ordinal()] = value;
+                    mask |= 1 << filter.ordinal();
+                }
+            }
+            boolean unknownFuel = !isNull(criteria.getFuelType()) && !criteria.getFuelType().isEmpty()
+                    && values[Filter.FUEL_TYPE.ordinal()] == null;
+            return new Bound(mask, values, unknownFuel);
+        }
+
+        Shape shape(String sort, boolean desc, Kind kind) {
+            return new Shape(mask, sort, desc, kind);
+        }
+
+        <T> TypedQuery<T> bind(TypedQuery<T> query) {
+            for (Filter filter : Filter.VALUES) {
+                if ((mask & 1 << filter.ordinal()) != 0) {
+                    query.setParameter(filter.parameter, values[filter.ordinal()]);
+                }
+            }
+            return query;
+        }
+
+        /**
+         * Значения позиционных параметров запроса {@link #sql(Shape)} формы {@code shape}: фильтры,
+         * затем курсор (для CURSOR_AFTER и CURSOR_AFTER_NULL) и {@code limit} (кроме COUNT).
+         */
+        List<Object> sqlParameters(Shape shape, Integer cursorId, Object cursorValue, int limit) {
+            List<Object> parameters = new ArrayList<>();
+            for (Filter filter : Filter.VALUES) {
+                if ((mask & 1 << filter.ordinal()) != 0) {
+                    parameters.add(sqlValue(values[filter.ordinal()]));
+                }
+            }
+            if (shape.kind() == Kind.COUNT) {
+                return parameters;
+            }
+            if (shape.kind() == Kind.CURSOR_AFTER && !"id".equals(shape.sort())) {
+                parameters.add(sqlValue(cursorValue));
+                parameters.add(sqlValue(cursorValue));
+            }
+            if (shape.kind() == Kind.CURSOR_AFTER || shape.kind() == Kind.CURSOR_AFTER_NULL) {
+                parameters.add(cursorId);
+            }
+            parameters.add(limit);
+            return parameters;
+        }
+    }
+
+    private static final Map<Shape, String> JPQL = new ConcurrentHashMap<>();
+
+    private static final Map<Shape, String> SQL = new ConcurrentHashMap<>();
+
+    private VehicleQueries() {
+    }
+
+    static String jpql(Shape shape) {
+        return JPQL.computeIfAbsent(shape, VehicleQueries::build);
+    }
+
+    /**
+     * SQL той же формы по таблице vehicle для проверки планов ({@link VehicleQueryPlans}). Поддерживаются
+     * COUNT, CURSOR_FIRST, CURSOR_AFTER и CURSOR_AFTER_NULL; значения позиционных параметров
+     * дает {@link Bound#sqlParameters}.
+     */
+    static String sql(Shape shape) {
+        return SQL.computeIfAbsent(shape, VehicleQueries::buildSql);
+    }
+
+    /**
+     * Шаблон LIKE для поиска подстроки имени без учета регистра. Постоянного начала у шаблона нет, поэтому
+     * диапазона по индексу не будет, но условие проверяется по узкому индексу (name_lower, id), а не по строкам таблицы.
+     */
+    static String nameSubstringPattern(String name) {
+        return "%" + name.toLowerCase() + "%";
+    }
+
+    /**
+     * Значение параметра JDBC: перечисления хранятся в БД по имени.
+     */
+    static Object sqlValue(Object value) {
+        return value instanceof Enum<?> constant ? constant.name() : value;
+    }
+
+    private static String buildSql(Shape shape) {
+        var sql = new StringBuilder(shape.kind() == Kind.COUNT
+                ? "SELECT COUNT(*) FROM vehicle"
+                : VehicleChangeBatch.SELECT_ROWS);
+        String separator = " WHERE ";
+        for (Filter filter : Filter.VALUES) {
+            if ((shape.filters() & 1 << filter.ordinal()) != 0) {
+                sql.append(separator).append(filter.sqlClause);
+                separator = " AND ";
+            }
+        }
+        if (shape.kind() == Kind.COUNT) {
+            return sql.toString();
+        }
+        if (shape.kind() == Kind.CURSOR_AFTER || shape.kind() == Kind.CURSOR_AFTER_NULL) {
+            sql.append(separator).append(afterCursor(column(shape.sort()), "id", "?", "?", shape));
+        } else if (shape.kind() != Kind.CURSOR_FIRST) {
+            throw new IllegalArgumentException("Unsupported SQL query kind: " + shape.kind());
+        }
+        return sql.append(orderBy(column(shape.sort()), "id", shape)).append(" LIMIT ?").toString();
+    }
+
+    private static String column(String sort) {
+        return switch (sort) {
+            case "name" -> "name";
+            case "enginePower" -> "engine_power";
+            case "numberOfWheels" -> "number_of_wheels";
+            case "capacity" -> "capacity";
+            case "fuelType" -> "fuel_type";
+            default -> "id";
+        };
+    }
+
+    private static String build(Shape shape) {
+        var jpql = new StringBuilder(shape.kind() == Kind.COUNT ? SELECT_COUNT : SELECT_VIEW);
+        String separator = " WHERE ";
+        for (Filter filter : Filter.VALUES) {
+            if ((shape.filters() & 1 << filter.ordinal()) != 0) {
+                jpql.append(separator).append(filter.clause);
+                separator = " AND ";
+            }
+        }
+
+        switch (shape.kind()) {
+            case COUNT -> {
+            }
+            case EXPORT -> jpql.append(" ORDER BY v.id");
+            case PAGE, CURSOR_FIRST -> jpql.append(orderBy("v." + shape.sort(), "v.id", shape));
+            case CURSOR_AFTER, CURSOR_AFTER_NULL -> jpql.append(separator)
+                    .append(afterCursor("v." + shape.sort(), "v.id", ":cursorValue", ":cursorId", shape))
+                    .append(orderBy("v." + shape.sort(), "v.id", shape));
+        }
+        return jpql.toString();
+    }
+
+    /**
+     * Вид запроса keyset-пагинации для курсора: {@code cursorId == null} — первая страница.
+     */
+    static Kind cursorKind(String sort, Integer cursorId, Object cursorValue) {
+        if (isNull(cursorId)) {
+            return Kind.CURSOR_FIRST;
+        }
+        return isNull(cursorValue) && !"id".equals(sort) ? Kind.CURSOR_AFTER_NULL : Kind.CURSOR_AFTER;
+    }
+
+    static boolean nullable(String sort) {
+        return "enginePower".equals(sort) || "numberOfWheels".equals(sort);
+    }
+
+    /**
+     * Порядок (ключ сортировки, id) по самим столбцам, без выражений, чтобы выборку отдавал индекс
+     * (ключ, id). NULL в enginePower и numberOfWheels идет первым при любом направлении:
+     * по возрастанию это прямой обход индекса (ключ, id), по убыванию — индекса (ключ DESC NULLS FIRST, id DESC).
+     */
+    private static String orderBy(String key, String id, Shape shape) {
+        String direction = shape.desc() ? " DESC" : " ASC";
+        if ("id".equals(shape.sort())) {
+            return " ORDER BY " + id + direction;
+        }
+        String nulls = nullable(shape.sort()) ? " NULLS FIRST" : "";
+        return " ORDER BY " + key + direction + nulls + ", " + id + direction;
+    }
+
+    /**
+     * Условие «строго после курсора» в порядке {@link #orderBy}. Для непустого значения курсора ключ
+     * ограничен с одной стороны ({@code >=} или {@code <=}), чтобы индекс начинал чтение с позиции
+     * курсора; строки с NULL в ключе при этом уже пройдены. После курсора со значением NULL
+     * (CURSOR_AFTER_NULL) идут оставшиеся строки с NULL, затем все непустые.
+     */
+    private static String afterCursor(String key, String id, String cursorValue, String cursorId, Shape shape) {
+        String after = shape.desc() ? " < " : " > ";
+        String idAfter = id + after + cursorId;
+        if ("id".equals(shape.sort())) {
+            return idAfter;
+        }
+        if (shape.kind() == Kind.CURSOR_AFTER_NULL) {
+            return "((" + key + " IS NULL AND " + idAfter + ") OR " + key + " IS NOT NULL)";
+        }
+        String from = shape.desc() ? " <= " : " >= ";
+        return key + from + cursorValue + " AND (" + key + after + cursorValue + " OR " + idAfter + ")";
+    }
+}
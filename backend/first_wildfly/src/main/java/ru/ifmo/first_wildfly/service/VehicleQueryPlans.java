@@ -0,0 +1,97 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import ru.ifmo.first_wildfly.domain.VehicleSearchCriteria;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Bound;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Kind;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Shape;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Планы H2 (EXPLAIN) для типовых форм запросов к vehicle. Текст берется из {@link VehicleQueries#sql},
+ * то есть совпадает с тем, что выполняет приложение, а параметры связываются так же, как при выполнении.
+ */
+public final class VehicleQueryPlans {
+
+    /**
+     * Пример запроса: SQL формы и значения его позиционных параметров.
+     */
+    record Sample(String sql, List<Object> parameters) {
+    }
+
+    private VehicleQueryPlans() {
+    }
+
+    static Map<String, Sample> samples() {
+        Map<String, Sample> samples = new LinkedHashMap<>();
+        count(samples, "name substring", c -> c.setName("a"));
+        count(samples, "engine power range", c -> {
+            c.setMinEnginePower(1);
+            c.setMaxEnginePower(100);
+        });
+        count(samples, "wheels range", c -> {
+            c.setMinWheels(1);
+            c.setMaxWheels(4);
+        });
+        count(samples, "capacity range", c -> {
+            c.setMinCapacity(BigDecimal.ONE);
+            c.setMaxCapacity(BigDecimal.TEN);
+        });
+        count(samples, "fuel type", c -> c.setFuelType("DIESEL"));
+        count(samples, "fuel type and engine power", c -> {
+            c.setFuelType("DIESEL");
+            c.setMinEnginePower(1);
+        });
+        count(samples, "coordinates box", c -> {
+            c.setMinCoordinateX(0L);
+            c.setMaxCoordinateX(100L);
+            c.setMinCoordinateY(0);
+            c.setMaxCoordinateY(100);
+        });
+        page(samples, "sort by name", "name", false, null, null);
+        page(samples, "sort by capacity", "capacity", false, null, null);
+        page(samples, "engine power desc after cursor", "enginePower", true, 5, 100L);
+        page(samples, "wheels after null cursor", "numberOfWheels", false, 5, null);
+        return samples;
+    }
+
+    /**
+     * @return план каждой формы; полный просмотр таблицы отображается в плане как {@code tableScan}
+     */
+    public static Map<String, String> explain(EntityManager entityManager) {
+        Map<String, String> plans = new LinkedHashMap<>();
+        samples().forEach((name, sample) -> {
+            try {
+                Query query = entityManager.createNativeQuery("EXPLAIN " + sample.sql());
+                for (int i = 0; i < sample.parameters().size(); i++) {
+                    query.setParameter(i + 1, sample.parameters().get(i));
+                }
+                plans.put(name, String.valueOf(query.getSingleResult()).replaceAll("\\s+", " "));
+            } catch (Exception e) {
+                plans.put(name, "unavailable: " + e.getMessage());
+            }
+        });
+        return plans;
+    }
+
+    private static void count(Map<String, Sample> samples, String name, Consumer<VehicleSearchCriteria> filters) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        filters.accept(criteria);
+        Bound bound = Bound.of(criteria);
+        Shape shape = bound.shape(null, false, Kind.COUNT);
+        samples.put(name, new Sample(VehicleQueries.sql(shape), bound.sqlParameters(shape, null, null, 0)));
+    }
+
+    private static void page(Map<String, Sample> samples, String name, String sort, boolean desc,
+                             Integer cursorId, Object cursorValue) {
+        Bound bound = Bound.of(new VehicleSearchCriteria());
+        Shape shape = bound.shape(sort, desc, VehicleQueries.cursorKind(sort, cursorId, cursorValue));
+        samples.put(name, new Sample(VehicleQueries.sql(shape), bound.sqlParameters(shape, cursorId, cursorValue, 20)));
+    }
+}
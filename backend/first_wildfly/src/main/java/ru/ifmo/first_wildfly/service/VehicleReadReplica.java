@@ -0,0 +1,154 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.annotation.sql.DataSourceDefinition;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ru.ifmo.first_wildfly.domain.VehicleChangedEvent;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static jakarta.ejb.ConcurrencyManagementType.BEAN;
+
+/**
+ * Реплика только для чтения: отдельный экземпляр H2, в который изменения переносятся асинхронно
+ * из журнала vehicle_change (по номеру, в порядке фиксации). Чтение списков и записей по id идет
+ * в реплику через единицу персистентности «replica», запись — только в основную БД.
+ * <p>
+ * Реплика используется, пока отставание не больше {@link #MAX_LAG_MILLIS} и применены все изменения,
+ * которые клиент уже видел ({@link ReplicationProgress}). Иначе чтение уходит в основную БД.
+ */
+@DataSourceDefinition(
+        name = VehicleReadReplica.DATA_SOURCE,
+        className = "org.h2.jdbcx.JdbcDataSource",
+        url = "jdbc:h2:mem:vehicle_replica;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+        user = "sa",
+        password = "",
+        transactional = false)
+@Singleton
+@Startup
+@DependsOn("DatabaseInitializer")
+@ConcurrencyManagement(BEAN)
+public class VehicleReadReplica {
+
+    static final String DATA_SOURCE = "java:app/jdbc/vehicleReplica";
+
+    private static final long APPLY_INTERVAL_MILLIS = 200;
+    private static final long MAX_LAG_MILLIS = 2000;
+    private static final int BATCH_SIZE = 500;
+
+    @PersistenceContext(unitName = "default")
+    private EntityManager entityManager;
+
+    @Resource(lookup = DATA_SOURCE)
+    private DataSource replica;
+
+    @Resource
+    private TimerService timerService;
+
+    @EJB
+    private VehicleCountCache countCache;
+
+    private final AtomicBoolean applying = new AtomicBoolean();
+
+    private final ReplicationProgress progress = new ReplicationProgress(MAX_LAG_MILLIS);
+
+    @PostConstruct
+    public void init() {
+        timerService.createIntervalTimer(0, APPLY_INTERVAL_MILLIS, new TimerConfig(null, false));
+    }
+
+    /**
+     * Можно ли читать из реплики запрос, который должен видеть изменения до номера {@code requiredSequence}.
+     */
+    public boolean isReadable(long requiredSequence) {
+        return progress.isReadable(requiredSequence);
+    }
+
+    public void onVehicleChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) VehicleChangedEvent event) {
+        progress.committed(event.getSequence());
+    }
+
+    @Timeout
+    public void apply() {
+        if (!applying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (!progress.ready()) {
+                copyAll();
+            }
+            while (applyChanges() == BATCH_SIZE) {
+                // журнал отстал больше чем на пачку — догоняем без ожидания таймера
+            }
+        } catch (Exception e) {
+            System.out.println("Read replica apply failed: " + e.getMessage());
+        } finally {
+            applying.set(false);
+        }
+    }
+
+    /**
+     * Создает схему реплики и копирует все строки. Номер журнала читается до копирования:
+     * изменения, попавшие в копию и в журнал после него, применятся повторно, MERGE идемпотентен.
+     */
+    private void copyAll() throws SQLException {
+        long sequence = VehicleChangeBatch.committedSequence(entityManager);
+
+        try (Connection connection = replica.getConnection()) {
+            VehicleChangeBatch.createSchema(connection);
+            List<Object[]> chunk = new ArrayList<>(BATCH_SIZE);
+            Iterator<?> rows = entityManager.createNativeQuery(VehicleChangeBatch.SELECT_ROWS)
+                    .setHint("org.hibernate.fetchSize", BATCH_SIZE)
+                    .getResultStream()
+                    .iterator();
+            while (rows.hasNext()) {
+                chunk.add((Object[]) rows.next());
+                if (chunk.size() == BATCH_SIZE || !rows.hasNext()) {
+                    VehicleChangeBatch.apply(connection, chunk, List.of());
+                    chunk.clear();
+                }
+            }
+        }
+
+        progress.initialized(sequence);
+        countCache.invalidate();
+        System.out.println("Read replica initialized at change " + sequence);
+    }
+
+    /**
+     * Применяет следующую пачку журнала.
+     *
+     * @return число прочитанных записей журнала
+     */
+    private int applyChanges() throws SQLException {
+        VehicleChangeBatch batch = VehicleChangeBatch.read(entityManager, progress.appliedSequence(), BATCH_SIZE);
+        if (batch.size() == 0) {
+            return 0;
+        }
+        try (Connection connection = replica.getConnection()) {
+            VehicleChangeBatch.apply(connection, batch.rows(), batch.deletedIds());
+        }
+        progress.applied(batch.lastSequence());
+        // COUNT, посчитанный по отстающей реплике, мог попасть в кэш после инвалидации при коммите
+        countCache.invalidate();
+        return batch.size();
+    }
+}
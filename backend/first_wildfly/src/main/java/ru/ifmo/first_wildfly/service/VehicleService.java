@@ -1,24 +1,39 @@
 package ru.ifmo.first_wildfly.service;
 
+import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import ru.ifmo.first_wildfly.domain.VehicleChangedEvent;
+import ru.ifmo.first_wildfly.domain.VehicleCursor;
 import ru.ifmo.first_wildfly.domain.VehiclePage;
 import ru.ifmo.first_wildfly.domain.VehicleSearchCriteria;
+import ru.ifmo.first_wildfly.domain.VehicleView;
 import ru.ifmo.first_wildfly.domain.entity.CoordinatesEntity;
 import ru.ifmo.first_wildfly.domain.entity.FuelType;
 import ru.ifmo.first_wildfly.domain.entity.VehicleEntity;
 import ru.ifmo.first_wildfly.dto.*;
 import ru.ifmo.first_wildfly.exception.FirstException;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Bound;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Kind;
 
 import java.time.ZonedDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static jakarta.ejb.TransactionAttributeType.REQUIRES_NEW;
 import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
@@ -26,57 +41,121 @@ import static java.util.Objects.nonNull;
 @Stateless
 public class VehicleService {
 
-    @PersistenceContext
+    private static final String SELECT_FOR_UPDATE = VehicleChangeBatch.SELECT_ROWS + " WHERE id = ?1 FOR UPDATE";
+
+    private static final String ADD_WHEELS_JPQL = "UPDATE VehicleEntity v " +
+            "SET v.numberOfWheels = COALESCE(v.numberOfWheels, 0) + :wheels, v.version = v.version + 1 WHERE v.id = :id";
+
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final int MAX_IDS_PER_REQUEST = 1000;
+
+    private static final int IN_CHUNK_SIZE = 500;
+
+    // значение курсора для NULL в enginePower и numberOfWheels; пустое имя запрещено схемой, так что неоднозначности нет
+    private static final String NULL_CURSOR_VALUE = "";
+
+    @PersistenceContext(unitName = "default")
     private EntityManager entityManager;
 
+    @PersistenceContext(unitName = "replica")
+    private EntityManager replicaEntityManager;
+
+    @EJB
+    private VehicleReadReplica readReplica;
+
+    @Inject
+    private RequestSequence requestSequence;
+
+    @EJB
+    private VehicleCountCache countCache;
+
+    @EJB
+    private VehicleNameIndex nameIndex;
+
+    @EJB
+    private VehicleStatistics statistics;
+
+    @EJB
+    private VehicleSpatialIndex spatialIndex;
+
+    @EJB
+    private VehicleColumnarStatistics columnarStatistics;
+
+    @Inject
+    private Event<VehicleChangedEvent> vehicleChanged;
+
     @Transactional
     public VehicleDto createVehicle(VehicleCreateDto dto) {
         var entity = toEntity(dto);
         entityManager.persist(entity);
-        return toDto(entity);
+        var created = toDto(entity);
+        vehicleChanged.fire(VehicleChangedEvent.created(created));
+        return created;
     }
 
     public Optional<VehicleDto> getById(Integer id) {
-        VehicleEntity entity = entityManager.find(VehicleEntity.class, id);
+        VehicleEntity entity = findForRead(id);
         return entity != null ? Optional.of(toDto(entity)) : Optional.empty();
     }
 
+    /**
+     * Транспортные средства по списку id за один запрос IN на каждые {@link #IN_CHUNK_SIZE} id.
+     * Порядок ответа совпадает с порядком запроса (повторы id отбрасываются),
+     * отсутствующие id перечисляются в {@code missingIds}.
+     */
+    public VehiclesByIdsResponseDto getByIds(List<Integer> ids) {
+        if (isNull(ids) || ids.isEmpty()) {
+            throw new FirstException("ids are required", 400);
+        }
+        if (ids.contains(null)) {
+            throw new FirstException("ids must not contain null", 400);
+        }
+        List<Integer> distinctIds = ids.stream().distinct().collect(Collectors.toList());
+        if (distinctIds.size() > MAX_IDS_PER_REQUEST) {
+            throw new FirstException("At most " + MAX_IDS_PER_REQUEST + " ids per request", 400);
+        }
+
+        EntityManager reader = reader();
+        Map<Integer, VehicleView> found = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += IN_CHUNK_SIZE) {
+            found.putAll(findViewsById(reader, distinctIds.subList(from, Math.min(from + IN_CHUNK_SIZE, distinctIds.size()))));
+        }
+
+        List<VehicleDto> vehicles = new ArrayList<>(found.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : distinctIds) {
+            VehicleView view = found.get(id);
+            if (nonNull(view)) {
+                vehicles.add(toDto(view));
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new VehiclesByIdsResponseDto(vehicles, missingIds);
+    }
+
+    /**
+     * @param expectedVersion версия из If-Match; null — удалить без проверки
+     */
     @Transactional
-    public void delete(Integer id) {
-        VehicleEntity entity = entityManager.find(VehicleEntity.class, id);
+    public void delete(Integer id, Long expectedVersion) {
+        VehicleEntity entity = find(id);
         if (entity == null) {
             throw new FirstException("Vehicle wasn't found", 404);
         }
+        checkVersion(entity, expectedVersion);
+        var deleted = toDto(entity);
         entityManager.remove(entity);
+        vehicleChanged.fire(VehicleChangedEvent.deleted(deleted));
     }
 
     public PagedVehicleResponseDto getVehicles(VehicleSearchCriteria criteria, VehiclePage pageParams) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<VehicleEntity> countRoot = countQuery.from(VehicleEntity.class);
-        countQuery.select(cb.count(countRoot));
-        applyFilters(countRoot, countQuery, cb, criteria);
-        Long total = entityManager.createQuery(countQuery).getSingleResult();
-
-        if (total == 0) {
-            return emptyPagedResponse(pageParams.getPage(), total.intValue());
-        }
-
-        CriteriaQuery<VehicleEntity> query = cb.createQuery(VehicleEntity.class);
-        Root<VehicleEntity> root = query.from(VehicleEntity.class);
-        applyFilters(root, query, cb, criteria);
-
         String sortField = pageParams.getSort();
-        if (sortField == null || !isValidSortField(sortField)) {
+        if (sortField == null || !VehicleQueries.SORT_FIELDS.contains(sortField)) {
             sortField = "id";
         }
-        Order order = "desc".equalsIgnoreCase(pageParams.getOrder())
-                ? cb.desc(root.get(sortField))
-                : cb.asc(root.get(sortField));
-        query.orderBy(order);
-
-        TypedQuery<VehicleEntity> typedQuery = entityManager.createQuery(query);
+        String order = "desc".equalsIgnoreCase(pageParams.getOrder()) ? "desc" : "asc";
 
         int page = pageParams.getPage() != null ? pageParams.getPage() : 1;
         int size = pageParams.getSize() != null ? pageParams.getSize() : 20;
@@ -84,125 +163,554 @@ public class VehicleService {
         if (size < 1) size = 20;
         if (size > 100) size = 100;
 
-        typedQuery.setFirstResult((page - 1) * size);
-        typedQuery.setMaxResults(size);
+        EntityManager reader = reader();
+        Bound bound = Bound.of(criteria);
+        boolean withTotal = !Boolean.FALSE.equals(pageParams.getWithTotal());
+        if (bound.empty()) {
+            return emptyPagedResponse(nonNull(pageParams.getCursor()) ? 0 : page, withTotal ? 0 : null);
+        }
 
-        List<VehicleEntity> content = typedQuery.getResultList();
+        Integer total = null;
+        if (withTotal) {
+            total = countVehicles(reader, criteria);
+            if (total == 0) {
+                return emptyPagedResponse(nonNull(pageParams.getCursor()) ? 0 : page, total);
+            }
+        }
+
+        if (nonNull(pageParams.getCursor())) {
+            return getVehiclesAfterCursor(reader, bound, pageParams.getCursor(), sortField, order, size, total);
+        }
 
-        return buildPagedResponse(content, total.intValue(), page, size);
+        boolean desc = "desc".equals(order);
+        List<VehicleView> content = bound.bind(reader.createQuery(VehicleQueries.jpql(bound.shape(sortField, desc, Kind.PAGE)), VehicleView.class))
+                .setFirstResult((page - 1) * size)
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        return buildPagedResponse(content, total, page, size);
+    }
+
+    private int countVehicles(EntityManager reader, VehicleSearchCriteria criteria) {
+        VehicleSearchCriteria key = criteria.normalized();
+        long generation = countCache.generation();
+        Integer cached = countCache.get(key);
+        if (nonNull(cached)) {
+            return cached;
+        }
+
+        Bound bound = Bound.of(key);
+        int total = bound.bind(reader.createQuery(VehicleQueries.jpql(bound.shape(null, false, Kind.COUNT)), Long.class))
+                .getSingleResult().intValue();
+
+        countCache.put(key, total, generation);
+        return total;
+    }
+
+    private PagedVehicleResponseDto getVehiclesAfterCursor(EntityManager reader, Bound bound, String token,
+                                                           String sortField, String order, int size, Integer total) {
+        boolean desc = "desc".equals(order);
+        Integer cursorId = null;
+        Comparable<?> cursorValue = null;
+        if (!token.isEmpty()) {
+            VehicleCursor cursor = VehicleCursor.decode(token);
+            if (!sortField.equals(cursor.getSort()) || !order.equals(cursor.getOrder())) {
+                throw new FirstException("Cursor doesn't match sort parameters", 400);
+            }
+            cursorId = cursor.getId();
+            if (!"id".equals(sortField)) {
+                cursorValue = parseSortValue(sortField, cursor.getValue());
+            }
+        }
+
+        Kind kind = VehicleQueries.cursorKind(sortField, cursorId, cursorValue);
+        TypedQuery<VehicleView> query = reader.createQuery(
+                VehicleQueries.jpql(bound.shape(sortField, desc, kind)), VehicleView.class);
+        if (nonNull(cursorId)) {
+            query.setParameter("cursorId", cursorId);
+        }
+        if (nonNull(cursorValue)) {
+            query.setParameter("cursorValue", cursorValue);
+        }
+        List<VehicleView> content = bound.bind(query)
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        PagedVehicleResponseDto response = buildPagedResponse(content, total, 0, size);
+        if (response.getHasNext()) {
+            VehicleView last = content.get(size - 1);
+            response.setNextCursor(new VehicleCursor(sortField, order, last.id(), sortValue(last, sortField)).encode());
+        }
+        return response;
     }
 
+    /**
+     * Обновление защищено столбцом version: параллельная запись, успевшая раньше,
+     * приводит к OptimisticLockException вместо молчаливой перезаписи.
+     *
+     * @param expectedVersion версия из If-Match; null — обновить без проверки
+     */
     @Transactional
-    public VehicleDto update(Integer id, VehicleUpdateDto dto) {
-        VehicleEntity entity = entityManager.find(VehicleEntity.class, id);
+    public VehicleDto update(Integer id, VehicleUpdateDto dto, Long expectedVersion) {
+        VehicleEntity entity = find(id);
         if (entity == null) {
             throw new FirstException("Vehicle wasn't found", 404);
         }
+        checkVersion(entity, expectedVersion);
+        var before = toDto(entity);
 
-        if (nonNull(dto.getName())) entity.setName(dto.getName());
-        if (nonNull(dto.getCapacity())) entity.setCapacity(dto.getCapacity());
-        if (nonNull(dto.getEnginePower())) entity.setEnginePower(dto.getEnginePower().longValue());
-        if (nonNull(dto.getNumberOfWheels())) entity.setNumberOfWheels(dto.getNumberOfWheels().longValue());
-        if (nonNull(dto.getFuelType())) entity.setFuelType(toEntityFuelType(dto.getFuelType()));
+        applyUpdate(entity, dto);
+        entityManager.flush();
 
-        if (nonNull(dto.getCoordinates())) {
-            CoordinatesEntity coords = entity.getCoordinates();
-            if (nonNull(dto.getCoordinates().getX())) coords.setX(dto.getCoordinates().getX());
-            if (nonNull(dto.getCoordinates().getY())) coords.setY(dto.getCoordinates().getY());
+        var updated = toDto(entity);
+        vehicleChanged.fire(VehicleChangedEvent.updated(before, updated));
+        return updated;
+    }
+
+    /**
+     * Атомарно увеличивает количество колес без загрузки сущности. Строка читается с блокировкой
+     * (SELECT ... FOR UPDATE) — это снимок «до» для события, — затем меняется одним JPQL UPDATE.
+     * Параллельные вызовы для одной строки выполняются по очереди и не теряют приращений; новая строка —
+     * прочитанная с приращением и следующей версией: других изменений под блокировкой быть не может.
+     * <p>
+     * JPQL UPDATE — массовая операция Hibernate: регион VehicleEntity кэша второго уровня блокируется
+     * до завершения транзакции и очищается, поэтому чтение старой строки, начатое до фиксации,
+     * не положит ее обратно в кэш.
+     */
+    @Transactional
+    public VehicleDto addWheels(Integer id, Integer wheels) {
+        if (isNull(wheels) || wheels < 1) {
+            throw new FirstException("Number of wheels must be positive", 400);
         }
+        List<?> rows = entityManager.createNativeQuery(SELECT_FOR_UPDATE)
+                .setParameter(1, id)
+                .getResultList();
+        if (rows.isEmpty()) {
+            throw new FirstException("Vehicle wasn't found", 404);
+        }
+        VehicleView before = VehicleChangeBatch.view((Object[]) rows.get(0));
+        entityManager.createQuery(ADD_WHEELS_JPQL)
+                .setParameter("wheels", wheels.longValue())
+                .setParameter("id", id)
+                .executeUpdate();
+
+        long previous = nonNull(before.numberOfWheels()) ? before.numberOfWheels() : 0;
+        var updated = toDto(new VehicleView(before.id(), before.name(), before.x(), before.y(), before.creationDate(),
+                before.enginePower(), previous + wheels, before.capacity(), before.fuelType(), before.version() + 1));
+        vehicleChanged.fire(VehicleChangedEvent.updated(toDto(before), updated));
+        return updated;
+    }
 
-        return toDto(entity);
+    /**
+     * Создает часть пакета в отдельной транзакции. Некорректные элементы пропускаются
+     * с результатом 400, остальные вставляются JDBC-пакетами при flush.
+     *
+     * @param offset индекс первого элемента части во всем пакете
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public List<BulkItemResultDto> createChunk(List<VehicleCreateDto> dtos, int offset) {
+        var results = new BulkItemResultDto[dtos.size()];
+        var persisted = new VehicleEntity[dtos.size()];
+        for (int i = 0; i < dtos.size(); i++) {
+            String error = validate(dtos.get(i));
+            if (nonNull(error)) {
+                results[i] = BulkItemResultDto.failure(offset + i, null, 400, error);
+                continue;
+            }
+            persisted[i] = toEntity(dtos.get(i));
+            entityManager.persist(persisted[i]);
+        }
+        entityManager.flush();
+
+        for (int i = 0; i < dtos.size(); i++) {
+            if (nonNull(persisted[i])) {
+                var created = toDto(persisted[i]);
+                vehicleChanged.fire(VehicleChangedEvent.created(created));
+                results[i] = BulkItemResultDto.success(offset + i, 201, created);
+            }
+        }
+        return Arrays.asList(results);
     }
 
-    public List<VehicleDto> vehiclesSearchNameStartsWithPrefix(String prefix) {
-        String jpql = "SELECT v FROM VehicleEntity v WHERE v.name LIKE :prefix";
-        TypedQuery<VehicleEntity> query = entityManager.createQuery(jpql, VehicleEntity.class);
-        query.setParameter("prefix", "%" + prefix + "%");
-        return query.getResultList().stream().map(this::toDto).collect(Collectors.toList());
+    /**
+     * Обновляет часть пакета в отдельной транзакции: все сущности загружаются одним IN-запросом,
+     * изменения сбрасываются JDBC-пакетами при flush.
+     *
+     * @param offset индекс первого элемента части во всем пакете
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public List<BulkItemResultDto> updateChunk(List<VehicleBulkUpdateDto> items, int offset) {
+        Map<Integer, VehicleEntity> entities = findAllById(items.stream()
+                .filter(Objects::nonNull)
+                .map(VehicleBulkUpdateDto::getId)
+                .collect(Collectors.toList()));
+
+        var results = new ArrayList<BulkItemResultDto>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            var item = items.get(i);
+            Integer id = nonNull(item) ? item.getId() : null;
+            String error = isNull(item) || isNull(id) ? "Vehicle id is required" : validate(item.getVehicle());
+            if (nonNull(error)) {
+                results.add(BulkItemResultDto.failure(offset + i, id, 400, error));
+                continue;
+            }
+            VehicleEntity entity = entities.get(id);
+            if (isNull(entity)) {
+                results.add(BulkItemResultDto.failure(offset + i, id, 404, "Vehicle wasn't found"));
+                continue;
+            }
+            var before = toDto(entity);
+            applyUpdate(entity, item.getVehicle());
+            var updated = toDto(entity);
+            vehicleChanged.fire(VehicleChangedEvent.updated(before, updated));
+            results.add(BulkItemResultDto.success(offset + i, 200, updated));
+        }
+        entityManager.flush();
+        // версия увеличивается только при flush
+        for (var result : results) {
+            if (nonNull(result.getVehicle())) {
+                result.getVehicle().setVersion(entities.get(result.getId()).getVersion());
+            }
+        }
+        return results;
     }
 
-    public AverageEnginePowerResponseDto countAverageEnginePowerGet() {
-        Double avg = entityManager.createQuery(
-                        "SELECT AVG(v.enginePower) FROM VehicleEntity v", Double.class)
-                .getSingleResult();
-        if (isNull(avg)) {
-            return new AverageEnginePowerResponseDto(0F);
+    /**
+     * Удаляет часть пакета в отдельной транзакции.
+     *
+     * @param offset индекс первого элемента части во всем пакете
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public List<BulkItemResultDto> deleteChunk(List<Integer> ids, int offset) {
+        Map<Integer, VehicleEntity> entities = findAllById(ids);
+
+        var results = new ArrayList<BulkItemResultDto>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Integer id = ids.get(i);
+            VehicleEntity entity = isNull(id) ? null : entities.remove(id);
+            if (isNull(entity)) {
+                results.add(BulkItemResultDto.failure(offset + i, id, 404, "Vehicle wasn't found"));
+                continue;
+            }
+            var deleted = toDto(entity);
+            entityManager.remove(entity);
+            vehicleChanged.fire(VehicleChangedEvent.deleted(deleted));
+            results.add(new BulkItemResultDto(offset + i, id, 204, null, null));
         }
-        return new AverageEnginePowerResponseDto(avg.floatValue());
+        entityManager.flush();
+        return results;
     }
 
-    public CountByWheelsResponseDto getCountByWheelsWheels(Integer wheels) {
-        Long count = entityManager.createQuery(
-                        "SELECT COUNT(v) FROM VehicleEntity v WHERE v.numberOfWheels = :wheels", Long.class)
-                .setParameter("wheels", wheels.longValue())
-                .getSingleResult();
-        return new CountByWheelsResponseDto(count.intValue());
+    public List<VehicleDto> vehiclesSearchNameStartsWithPrefix(String prefix, Integer limit) {
+        int k = nonNull(limit) ? limit : 10;
+        if (k < 1) k = 10;
+        if (k > 100) k = 100;
+        return nameIndex.search(prefix, k).stream().map(this::toDto).collect(Collectors.toList());
     }
 
-    private void applyFilters(Root<VehicleEntity> root, CriteriaQuery<?> query, CriteriaBuilder cb, VehicleSearchCriteria c) {
-        Predicate predicate = cb.conjunction();
+    /**
+     * Изменения с номером больше {@code since} из журнала vehicle_change, не более {@code limit} записей журнала.
+     * Несколько изменений одного транспортного средства в пачке сворачиваются в одно: UPSERT с текущим
+     * состоянием или DELETE, если записи уже нет. Следующий запрос делается с {@code since = lastSequence}.
+     * Если {@code since} меньше номера последнего удаленного при сжатии DELETE, часть удалений уже не прочитать:
+     * ответ 410, журнал нужно читать заново с нуля.
+     */
+    public VehicleChangesDto getChangesSince(Long since, Integer limit) {
+        if (isNull(since) || since < 0) {
+            throw new FirstException("since must be non-negative", 400);
+        }
+        int k = nonNull(limit) ? limit : 500;
+        if (k < 1) k = 500;
+        if (k > 1000) k = 1000;
+        if (since > 0 && since < VehicleChangeBatch.compactedSequence(entityManager)) {
+            throw new FirstException("Changes since " + since + " were compacted, read again from 0", 410);
+        }
 
-        if (c.getName() != null && !c.getName().isEmpty()) {
-            String searchPattern = "%" + c.getName().toLowerCase() + "%";
-            predicate = cb.and(predicate,
-                    cb.like(cb.lower(root.get("name")), searchPattern)
-            );
+        List<?> rows = entityManager.createNativeQuery(
+                        "SELECT seq, vehicle_id, change_type FROM vehicle_change WHERE seq > ?1 ORDER BY seq")
+                .setParameter(1, since)
+                .setMaxResults(k + 1)
+                .getResultList();
+        boolean hasMore = rows.size() > k;
+
+        long lastSequence = since;
+        Map<Integer, Long> latest = new LinkedHashMap<>();
+        Set<Integer> deleted = new HashSet<>();
+        for (Object row : rows.subList(0, Math.min(rows.size(), k))) {
+            Object[] columns = (Object[]) row;
+            lastSequence = ((Number) columns[0]).longValue();
+            Integer vehicleId = ((Number) columns[1]).intValue();
+            latest.remove(vehicleId);
+            latest.put(vehicleId, lastSequence);
+            if (VehicleChangeDto.DELETE.equals(columns[2])) {
+                deleted.add(vehicleId);
+            } else {
+                deleted.remove(vehicleId);
+            }
         }
 
-        if (c.getMinEnginePower() != null) {
-            predicate = cb.and(predicate, cb.ge(root.get("enginePower"), c.getMinEnginePower().longValue()));
+        Map<Integer, VehicleView> current = findViewsById(entityManager, latest.keySet().stream()
+                .filter(id -> !deleted.contains(id))
+                .collect(Collectors.toList()));
+        List<VehicleChangeDto> changes = new ArrayList<>(latest.size());
+        latest.forEach((vehicleId, sequence) -> {
+            VehicleView view = current.get(vehicleId);
+            changes.add(nonNull(view)
+                    ? new VehicleChangeDto(sequence, vehicleId, VehicleChangeDto.UPSERT, toDto(view))
+                    : new VehicleChangeDto(sequence, vehicleId, VehicleChangeDto.DELETE, null));
+        });
+        long headSequence = VehicleChangeBatch.committedSequence(entityManager);
+        return new VehicleChangesDto(changes, lastSequence, hasMore, headSequence);
+    }
+
+    public List<VehicleDto> searchByCoordinates(Long x, Integer y, Integer maxDistance) {
+        if (isNull(x) || isNull(y) || isNull(maxDistance)) {
+            throw new FirstException("x, y and maxDistance are required", 400);
+        }
+        if (maxDistance < 0) {
+            throw new FirstException("maxDistance must not be negative", 400);
+        }
+        return spatialIndex.searchWithin(x, y, maxDistance).stream().map(this::toDto).collect(Collectors.toList());
+    }
+
+    /**
+     * Передает потребителю все транспортные средства, подходящие под критерии, в порядке id.
+     * Строки читаются потоком как {@link VehicleView}, без загрузки сущностей в контекст
+     * персистентности, поэтому расход памяти не зависит от размера таблицы.
+     */
+    public void forEachVehicle(VehicleSearchCriteria criteria, Consumer<VehicleDto> consumer) {
+        Bound bound = Bound.of(criteria);
+        if (bound.empty()) {
+            return;
         }
-        if (c.getMaxEnginePower() != null) {
-            predicate = cb.and(predicate, cb.le(root.get("enginePower"), c.getMaxEnginePower().longValue()));
+        String jpql = VehicleQueries.jpql(bound.shape(null, false, Kind.EXPORT));
+
+        try (Stream<VehicleView> rows = bound.bind(reader().createQuery(jpql, VehicleView.class))
+                .setHint("org.hibernate.fetchSize", EXPORT_FETCH_SIZE)
+                .getResultStream()) {
+            rows.map(this::toDto).forEach(consumer);
         }
+    }
+
+    public AverageEnginePowerResponseDto countAverageEnginePowerGet() {
+        return new AverageEnginePowerResponseDto(statistics.averageEnginePower());
+    }
 
-        if (c.getMinWheels() != null) {
-            predicate = cb.and(predicate, cb.ge(root.get("numberOfWheels"), c.getMinWheels().longValue()));
+    /**
+     * @param groupBy     none, fuelType или numberOfWheels; по умолчанию none
+     * @param metric      enginePower, numberOfWheels или capacity; по умолчанию enginePower
+     * @param buckets     число интервалов гистограммы 0..100; по умолчанию 10
+     * @param percentiles перцентили через запятую, например "50,90,99"; по умолчанию "50,90,99"
+     */
+    public GroupedStatisticsDto getGroupedStatistics(String groupBy, String metric, Integer buckets, String percentiles) {
+        String group = isNull(groupBy) ? "none" : groupBy;
+        String field = isNull(metric) ? "enginePower" : metric;
+        if (!VehicleColumnarStatistics.GROUP_BY.contains(group)) {
+            throw new FirstException("Invalid groupBy: " + groupBy, 400);
         }
-        if (c.getMaxWheels() != null) {
-            predicate = cb.and(predicate, cb.le(root.get("numberOfWheels"), c.getMaxWheels().longValue()));
+        if (!VehicleColumnarStatistics.METRICS.contains(field)) {
+            throw new FirstException("Invalid metric: " + metric, 400);
         }
+        int k = isNull(buckets) ? 10 : buckets;
+        if (k < 0 || k > 100) {
+            throw new FirstException("buckets must be between 0 and 100", 400);
+        }
+        double[] p;
+        try {
+            p = Arrays.stream((isNull(percentiles) ? "50,90,99" : percentiles).split(","))
+                    .map(String::trim)
+                    .filter(it -> !it.isEmpty())
+                    .mapToDouble(Double::parseDouble)
+                    .toArray();
+        } catch (NumberFormatException e) {
+            throw new FirstException("Invalid percentiles: " + percentiles, 400);
+        }
+        if (Arrays.stream(p).anyMatch(it -> !(it > 0 && it <= 100))) {
+            throw new FirstException("Percentiles must be in (0, 100]", 400);
+        }
+        return columnarStatistics.compute(group, field, k, p);
+    }
 
-        if (c.getMinCapacity() != null) {
-            predicate = cb.and(predicate, cb.gt(root.get("capacity"), c.getMinCapacity().floatValue()));
+    public CountByWheelsResponseDto getCountByWheelsWheels(Integer wheels) {
+        return new CountByWheelsResponseDto(statistics.countByWheels(wheels.longValue()));
+    }
+
+    private void checkVersion(VehicleEntity entity, Long expectedVersion) {
+        if (nonNull(expectedVersion) && !expectedVersion.equals(entity.getVersion())) {
+            throw new FirstException("Vehicle was modified concurrently", 412);
         }
-        if (c.getMaxCapacity() != null) {
-            predicate = cb.and(predicate, cb.le(root.get("capacity"), c.getMaxCapacity().floatValue()));
+    }
+
+    private VehicleEntity find(Integer id) {
+        return entityManager.find(VehicleEntity.class, id);
+    }
+
+    /**
+     * Запись из кэша второго уровня, если она там есть; иначе из реплики, если чтение из нее допустимо.
+     */
+    private VehicleEntity findForRead(Integer id) {
+        EntityManager reader = reader();
+        if (reader == entityManager || entityManager.getEntityManagerFactory().getCache().contains(VehicleEntity.class, id)) {
+            return find(id);
         }
+        return reader.find(VehicleEntity.class, id);
+    }
 
-        if (c.getFuelType() != null && !c.getFuelType().isEmpty()) {
-            try {
-                FuelType fuel = FuelType.valueOf(c.getFuelType());
-                predicate = cb.and(predicate, cb.equal(root.get("fuelType"), fuel));
-            } catch (IllegalArgumentException ignored) {
-                predicate = cb.and(predicate, cb.disjunction());
-            }
+    /**
+     * Реплика, если она применила все изменения, которые должен видеть этот запрос, и не отстает;
+     * иначе основная БД.
+     */
+    private EntityManager reader() {
+        return readReplica.isReadable(requestSequence.required()) ? replicaEntityManager : entityManager;
+    }
+
+    private Map<Integer, VehicleEntity> findAllById(Collection<Integer> ids) {
+        List<Integer> distinctIds = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (distinctIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return entityManager.createQuery("SELECT v FROM VehicleEntity v WHERE v.id IN :ids", VehicleEntity.class)
+                .setParameter("ids", distinctIds)
+                .getResultStream()
+                .collect(Collectors.toMap(VehicleEntity::getId, Function.identity()));
+    }
+
+    private Map<Integer, VehicleView> findViewsById(EntityManager reader, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        CriteriaBuilder cb = reader.getCriteriaBuilder();
+        CriteriaQuery<VehicleView> query = cb.createQuery(VehicleView.class);
+        Root<VehicleEntity> root = query.from(VehicleEntity.class);
+        query.select(vehicleView(cb, root)).where(root.get("id").in(ids));
+        return reader.createQuery(query)
+                .getResultStream()
+                .collect(Collectors.toMap(VehicleView::id, Function.identity()));
+    }
+
+    private void applyUpdate(VehicleEntity entity, VehicleUpdateDto dto) {
+        if (nonNull(dto.getName())) entity.setName(dto.getName());
+        if (nonNull(dto.getCapacity())) entity.setCapacity(dto.getCapacity());
+        if (nonNull(dto.getEnginePower())) entity.setEnginePower(dto.getEnginePower().longValue());
+        if (nonNull(dto.getNumberOfWheels())) entity.setNumberOfWheels(dto.getNumberOfWheels().longValue());
+        if (nonNull(dto.getFuelType())) entity.setFuelType(toEntityFuelType(dto.getFuelType()));
+
+        if (nonNull(dto.getCoordinates())) {
+            CoordinatesEntity coords = entity.getCoordinates();
+            if (nonNull(dto.getCoordinates().getX())) coords.setX(dto.getCoordinates().getX());
+            if (nonNull(dto.getCoordinates().getY())) coords.setY(dto.getCoordinates().getY());
+        }
+    }
+
+    private String validate(VehicleCreateDto dto) {
+        if (isNull(dto)) return "Vehicle is required";
+        if (isNull(dto.getName()) || dto.getName().isEmpty()) return "Name must not be empty";
+        if (isNull(dto.getCoordinates()) || isNull(dto.getCoordinates().getX()) || isNull(dto.getCoordinates().getY())) {
+            return "Coordinates are required";
+        }
+        if (isNull(dto.getCapacity()) || dto.getCapacity() <= 0) return "Capacity must be greater than 0";
+        if (isNull(dto.getFuelType())) return "Fuel type is required";
+        if (nonNull(dto.getEnginePower()) && dto.getEnginePower() <= 0) return "Engine power must be greater than 0";
+        if (nonNull(dto.getNumberOfWheels()) && dto.getNumberOfWheels() <= 0) return "Number of wheels must be greater than 0";
+        return null;
+    }
+
+    private String validate(VehicleUpdateDto dto) {
+        if (isNull(dto)) return "Vehicle is required";
+        if (nonNull(dto.getName()) && dto.getName().isEmpty()) return "Name must not be empty";
+        if (nonNull(dto.getCapacity()) && dto.getCapacity() <= 0) return "Capacity must be greater than 0";
+        if (nonNull(dto.getEnginePower()) && dto.getEnginePower() <= 0) return "Engine power must be greater than 0";
+        if (nonNull(dto.getNumberOfWheels()) && dto.getNumberOfWheels() <= 0) return "Number of wheels must be greater than 0";
+        return null;
+    }
+
+    /**
+     * Попадания, промахи и записи региона кэша второго уровня VehicleEntity (hibernate.generate_statistics).
+     * Имя региона ищется по окончанию: WildFly добавляет к нему префикс развертывания и единицы персистентности.
+     */
+    public CacheStatisticsDto getCacheStatistics() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        String region = Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .filter(name -> name.endsWith(VehicleEntity.class.getName()))
+                .findFirst()
+                .orElse(null);
+        if (isNull(region)) {
+            return new CacheStatisticsDto(null, 0, 0, 0, 0);
         }
+        CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+        return new CacheStatisticsDto(region,
+                regionStatistics.getHitCount(),
+                regionStatistics.getMissCount(),
+                regionStatistics.getPutCount(),
+                regionStatistics.getElementCountInMemory());
+    }
 
-        query.where(predicate);
+    private Selection<VehicleView> vehicleView(CriteriaBuilder cb, Root<VehicleEntity> root) {
+        Path<CoordinatesEntity> coordinates = root.get("coordinates");
+        return cb.construct(VehicleView.class,
+                root.get("id"),
+                root.get("name"),
+                coordinates.get("x"),
+                coordinates.get("y"),
+                root.get("creationDate"),
+                root.get("enginePower"),
+                root.get("numberOfWheels"),
+                root.get("capacity"),
+                root.get("fuelType"),
+                root.get("version")
+        );
     }
 
-    private boolean isValidSortField(String field) {
-        return List.of("id", "name", "enginePower", "numberOfWheels", "capacity", "fuelType").contains(field);
+    private String sortValue(VehicleView v, String field) {
+        return switch (field) {
+            case "name" -> v.name();
+            case "enginePower" -> isNull(v.enginePower()) ? NULL_CURSOR_VALUE : v.enginePower().toString();
+            case "numberOfWheels" -> isNull(v.numberOfWheels()) ? NULL_CURSOR_VALUE : v.numberOfWheels().toString();
+            case "capacity" -> Float.toString(v.capacity());
+            case "fuelType" -> v.fuelType().name();
+            default -> String.valueOf(v.id());
+        };
+    }
+
+    private Comparable<?> parseSortValue(String field, String value) {
+        try {
+            return switch (field) {
+                case "name" -> value;
+                case "enginePower", "numberOfWheels" -> NULL_CURSOR_VALUE.equals(value) ? null : Long.valueOf(value);
+                case "capacity" -> Float.valueOf(value);
+                case "fuelType" -> FuelType.valueOf(value);
+                default -> throw new FirstException("Invalid cursor", 400);
+            };
+        } catch (IllegalArgumentException e) {
+            throw new FirstException("Invalid cursor", 400);
+        }
     }
 
-    private PagedVehicleResponseDto buildPagedResponse(List<VehicleEntity> content, int totalElements, int currentPage, int size) {
-        int totalPages = (int) Math.ceil((double) totalElements / size);
-        return new PagedVehicleResponseDto(
-                content.stream().map(this::toDto).collect(Collectors.toList()),
+    // content запрашивается с одной лишней строкой: по ней определяется hasNext без COUNT.
+    // totalElements == null означает, что подсчет был пропущен (withTotal = false).
+    private PagedVehicleResponseDto buildPagedResponse(List<VehicleView> content, Integer totalElements, int currentPage, int size) {
+        boolean hasNext = content.size() > size;
+        Integer totalPages = nonNull(totalElements) ? (int) Math.ceil((double) totalElements / size) : null;
+        var response = new PagedVehicleResponseDto(
+                content.stream().limit(size).map(this::toDto).collect(Collectors.toList()),
                 totalElements,
                 totalPages,
                 currentPage
         );
+        response.setHasNext(hasNext);
+        return response;
     }
 
-    private PagedVehicleResponseDto emptyPagedResponse(int requestedPage, int totalElements) {
-        return new PagedVehicleResponseDto(
+    // при пропущенном подсчете totalPages тоже null, как в buildPagedResponse
+    private PagedVehicleResponseDto emptyPagedResponse(int requestedPage, Integer totalElements) {
+        var response = new PagedVehicleResponseDto(
                 List.of(),
                 totalElements,
-                0,
+                nonNull(totalElements) ? 0 : null,
                 requestedPage
         );
+        response.setHasNext(false);
+        return response;
     }
 
     private VehicleDto toDto(VehicleEntity e) {
@@ -214,7 +722,22 @@ public class VehicleService {
                 e.getEnginePower() != null ? e.getEnginePower().intValue() : null,
                 e.getNumberOfWheels() != null ? e.getNumberOfWheels().intValue() : null,
                 e.getCapacity(),
-                toDtoFuelType(e.getFuelType())
+                toDtoFuelType(e.getFuelType()),
+                e.getVersion()
+        );
+    }
+
+    private VehicleDto toDto(VehicleView v) {
+        return new VehicleDto(
+                v.id(),
+                v.name(),
+                new CoordinatesDto(v.x(), v.y()),
+                v.creationDate() != null ? v.creationDate().format(ISO_OFFSET_DATE_TIME) : null,
+                v.enginePower() != null ? v.enginePower().intValue() : null,
+                v.numberOfWheels() != null ? v.numberOfWheels().intValue() : null,
+                v.capacity(),
+                toDtoFuelType(v.fuelType()),
+                v.version()
         );
     }
 
@@ -0,0 +1,120 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.Singleton;
+import ru.ifmo.first_wildfly.domain.VehicleView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static jakarta.ejb.ConcurrencyManagementType.BEAN;
+import static java.util.Objects.nonNull;
+
+/**
+ * Равномерная сетка по координатам транспортных средств для поиска в радиусе.
+ * <p>
+ * Плоскость разбита на квадратные ячейки со стороной {@link #CELL_SIZE}; запрос просматривает только
+ * ячейки, пересекающие квадрат, описанный вокруг круга поиска (или только непустые ячейки, если их меньше),
+ * поэтому время зависит от площади поиска и размера результата, а не от размера каталога.
+ * Сетка наполняется из {@link VehicleCatalog}.
+ */
+@Singleton
+@ConcurrencyManagement(BEAN)
+public class VehicleSpatialIndex {
+
+    private static final long CELL_SIZE = 100;
+
+    private record Cell(long x, long y) {
+
+        static Cell of(long x, long y) {
+            return new Cell(Math.floorDiv(x, CELL_SIZE), Math.floorDiv(y, CELL_SIZE));
+        }
+    }
+
+    private final Map<Cell, Map<Integer, VehicleView>> cells = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Cell> cellsById = new ConcurrentHashMap<>();
+
+
+    /**
+     * Транспортные средства на расстоянии не больше {@code maxDistance} от точки (x, y),
+     * по возрастанию расстояния.
+     */
+    public List<VehicleView> searchWithin(long x, long y, long maxDistance) {
+        Cell from = Cell.of(x - maxDistance, y - maxDistance);
+        Cell to = Cell.of(x + maxDistance, y + maxDistance);
+        long cellsInRange = (to.x() - from.x() + 1) * (to.y() - from.y() + 1);
+
+        List<VehicleView> result = new ArrayList<>();
+        if (cellsInRange > 0 && cellsInRange <= cells.size()) {
+            for (long cx = from.x(); cx <= to.x(); cx++) {
+                for (long cy = from.y(); cy <= to.y(); cy++) {
+                    collectWithin(cells.get(new Cell(cx, cy)), x, y, maxDistance, result);
+                }
+            }
+        } else {
+            cells.forEach((cell, vehicles) -> {
+                if (cell.x() >= from.x() && cell.x() <= to.x() && cell.y() >= from.y() && cell.y() <= to.y()) {
+                    collectWithin(vehicles, x, y, maxDistance, result);
+                }
+            });
+        }
+        result.sort(Comparator.comparingLong((VehicleView vehicle) -> distanceSquared(vehicle, x, y))
+                .thenComparing(VehicleView::id));
+        return result;
+    }
+
+    public void reset(Collection<VehicleView> vehicles) {
+        cells.clear();
+        cellsById.clear();
+        vehicles.forEach(this::put);
+    }
+
+    public void apply(VehicleView before, VehicleView after) {
+        if (nonNull(before)) {
+            remove(before.id());
+        }
+        if (nonNull(after)) {
+            put(after);
+        }
+    }
+
+    private void collectWithin(Map<Integer, VehicleView> vehicles, long x, long y, long maxDistance, List<VehicleView> result) {
+        if (vehicles == null) {
+            return;
+        }
+        long maxDistanceSquared = maxDistance * maxDistance;
+        for (VehicleView vehicle : vehicles.values()) {
+            if (distanceSquared(vehicle, x, y) <= maxDistanceSquared) {
+                result.add(vehicle);
+            }
+        }
+    }
+
+    private long distanceSquared(VehicleView vehicle, long x, long y) {
+        long dx = vehicle.x() - x;
+        long dy = vehicle.y().longValue() - y;
+        return dx * dx + dy * dy;
+    }
+
+    private void put(VehicleView vehicle) {
+        Cell cell = Cell.of(vehicle.x(), vehicle.y());
+        cells.computeIfAbsent(cell, key -> new ConcurrentHashMap<>()).put(vehicle.id(), vehicle);
+        cellsById.put(vehicle.id(), cell);
+    }
+
+    private void remove(Integer id) {
+        Cell cell = cellsById.remove(id);
+        if (cell == null) {
+            return;
+        }
+        cells.computeIfPresent(cell, (key, vehicles) -> {
+            vehicles.remove(id);
+            return vehicles.isEmpty() ? null : vehicles;
+        });
+    }
+}
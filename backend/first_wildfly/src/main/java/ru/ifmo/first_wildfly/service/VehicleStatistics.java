@@ -0,0 +1,64 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.Singleton;
+import ru.ifmo.first_wildfly.domain.VehicleView;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static jakarta.ejb.ConcurrencyManagementType.BEAN;
+import static java.util.Objects.nonNull;
+
+/**
+ * Агрегаты по транспортным средствам, которые поддерживаются инкрементально:
+ * сумма и количество непустых enginePower (для среднего) и счетчики по numberOfWheels.
+ * Наполняются из {@link VehicleCatalog}. Чтение — O(1) без обращения к БД.
+ */
+@Singleton
+@ConcurrencyManagement(BEAN)
+public class VehicleStatistics {
+
+    private record EnginePower(long sum, long count) {
+    }
+
+    private final Map<Long, Long> countByWheels = new ConcurrentHashMap<>();
+
+    private volatile EnginePower enginePower = new EnginePower(0, 0);
+
+    public float averageEnginePower() {
+        EnginePower current = enginePower;
+        return current.count() == 0 ? 0F : (float) ((double) current.sum() / current.count());
+    }
+
+    public int countByWheels(long wheels) {
+        return countByWheels.getOrDefault(wheels, 0L).intValue();
+    }
+
+    public synchronized void reset(Collection<VehicleView> vehicles) {
+        enginePower = new EnginePower(0, 0);
+        countByWheels.clear();
+        vehicles.forEach(vehicle -> add(vehicle, 1));
+    }
+
+    public synchronized void apply(VehicleView before, VehicleView after) {
+        if (nonNull(before)) {
+            add(before, -1);
+        }
+        if (nonNull(after)) {
+            add(after, 1);
+        }
+    }
+
+    private void add(VehicleView vehicle, int sign) {
+        if (nonNull(vehicle.enginePower())) {
+            EnginePower current = enginePower;
+            enginePower = new EnginePower(current.sum() + sign * vehicle.enginePower(), current.count() + sign);
+        }
+        if (nonNull(vehicle.numberOfWheels())) {
+            countByWheels.merge(vehicle.numberOfWheels(), (long) sign,
+                    (count, delta) -> count + delta == 0 ? null : count + delta);
+        }
+    }
+}
@@ -1,17 +1,46 @@
-CREATE TABLE IF NOT EXISTS coordinate (
-    id SERIAL PRIMARY KEY,
-    x BIGINT NOT NULL,
-    y INTEGER NOT NULL
-);
-
 CREATE TABLE IF NOT EXISTS vehicle (
     id SERIAL PRIMARY KEY,
     name VARCHAR NOT NULL CHECK (name <> ''),
-    coordinate_id BIGINT NOT NULL,
+    coordinate_x BIGINT NOT NULL,
+    coordinate_y INTEGER NOT NULL,
     creation_date TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
     engine_power BIGINT CHECK (engine_power > 0),
     number_of_wheels BIGINT CHECK (number_of_wheels > 0),
     capacity REAL NOT NULL CHECK (capacity > 0),
     fuel_type VARCHAR(31) NOT NULL,
-    CONSTRAINT fk_vehicle_coordinates FOREIGN KEY (coordinate_id) REFERENCES coordinate(id) ON DELETE CASCADE
-);
\ No newline at end of file
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE vehicle ADD COLUMN IF NOT EXISTS name_lower VARCHAR GENERATED ALWAYS AS (LOWER(name));
+
+CREATE INDEX IF NOT EXISTS idx_vehicle_name ON vehicle(name, id);
+CREATE INDEX IF NOT EXISTS idx_vehicle_name_lower ON vehicle(name_lower, id);
+CREATE INDEX IF NOT EXISTS idx_vehicle_engine_power ON vehicle(engine_power NULLS FIRST, id);
+CREATE INDEX IF NOT EXISTS idx_vehicle_engine_power_desc ON vehicle(engine_power DESC NULLS FIRST, id DESC);
+CREATE INDEX IF NOT EXISTS idx_vehicle_number_of_wheels ON vehicle(number_of_wheels NULLS FIRST, id);
+CREATE INDEX IF NOT EXISTS idx_vehicle_number_of_wheels_desc ON vehicle(number_of_wheels DESC NULLS FIRST, id DESC);
+CREATE INDEX IF NOT EXISTS idx_vehicle_capacity ON vehicle(capacity, id);
+CREATE INDEX IF NOT EXISTS idx_vehicle_fuel_type_engine_power ON vehicle(fuel_type, engine_power, id);
+CREATE INDEX IF NOT EXISTS idx_vehicle_coordinates ON vehicle(coordinate_x, coordinate_y, id);
+
+CREATE SEQUENCE IF NOT EXISTS vehicle_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS vehicle_change (
+    seq BIGINT PRIMARY KEY,
+    vehicle_id INTEGER NOT NULL,
+    change_type VARCHAR(7) NOT NULL,
+    changed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS vehicle_change_counter (
+    id INTEGER PRIMARY KEY,
+    seq BIGINT NOT NULL
+);
+
+ALTER TABLE vehicle_change_counter ADD COLUMN IF NOT EXISTS compacted_seq BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_vehicle_change_vehicle ON vehicle_change(vehicle_id, seq);
+
+INSERT INTO vehicle_change_counter(id, seq) SELECT 1, 0 WHERE NOT EXISTS (SELECT 1 FROM vehicle_change_counter);
@@ -0,0 +1,34 @@
+package ru.ifmo.first_wildfly.api;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChangeSequenceInInterceptorTest {
+
+    @Test
+    void malformedHeaderIsClientFault() {
+        Message message = new MessageImpl();
+        message.put(Message.PROTOCOL_HEADERS, Map.of(ChangeSequenceFilter.MIN_CHANGE_SEQUENCE, List.of("abc")));
+
+        Fault fault = assertThrows(Fault.class, () -> new ChangeSequenceInInterceptor().handleMessage(message));
+
+        assertEquals(Fault.FAULT_CODE_CLIENT, fault.getFaultCode());
+        assertEquals(400, fault.getStatusCode());
+    }
+
+    @Test
+    void blankHeaderIsIgnored() {
+        Message message = new MessageImpl();
+        message.put(Message.PROTOCOL_HEADERS, Map.of(ChangeSequenceFilter.MIN_CHANGE_SEQUENCE, List.of(" ")));
+
+        new ChangeSequenceInInterceptor().handleMessage(message);
+    }
+}
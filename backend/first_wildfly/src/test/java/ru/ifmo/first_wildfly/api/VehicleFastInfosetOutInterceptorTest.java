@@ -0,0 +1,27 @@
+package ru.ifmo.first_wildfly.api;
+
+import jakarta.jws.WebMethod;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VehicleFastInfosetOutInterceptorTest {
+
+    @Test
+    void listOperationsAreVehicleApiOperations() {
+        Set<String> operations = Arrays.stream(VehicleApiImpl.class.getDeclaredMethods())
+                .filter(method -> method.isAnnotationPresent(WebMethod.class))
+                .map(Method::getName)
+                .collect(Collectors.toSet());
+
+        assertTrue(operations.containsAll(VehicleFastInfosetOutInterceptor.LIST_OPERATIONS),
+                () -> "not VehicleAPI operations: " + VehicleFastInfosetOutInterceptor.LIST_OPERATIONS.stream()
+                        .filter(name -> !operations.contains(name))
+                        .toList());
+    }
+}
@@ -0,0 +1,95 @@
+package ru.ifmo.first_wildfly.api;
+
+import com.ctc.wstx.stax.WstxInputFactory;
+import com.ctc.wstx.stax.WstxOutputFactory;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.first_wildfly.dto.PagedVehicleResponseDto;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Ответ getVehicles со страницей из {@code size} транспортных средств: запись сервером и разбор клиентом
+ * в JSON ({@link VehicleResource}, JSON-B — Yasson, как в RESTEasy WildFly) и в SOAP 1.1
+ * ({@link VehicleApiImpl}: {@link VehicleSoapEnvelope} через Woodstox, как в CXF).
+ * <p>
+ * Измеряется только сериализация и разбор тела ответа (DTO ↔ байты) на один вызов. Сеть, HTTP, контейнер
+ * и обращение к {@code VehicleService} здесь не участвуют, поэтому о пропускной способности самих конечных точек
+ * REST и SOAP результат ничего не говорит. Размер тел печатается при подготовке каждого {@code size}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehiclePageSerializationBenchmark {
+
+    @Param({"1", "20", "100"})
+    private int size;
+
+    private PagedVehicleResponseDto response;
+    private Jsonb jsonb;
+    private JAXBContext jaxb;
+    private XMLOutputFactory xmlOutput;
+    private XMLInputFactory xmlInput;
+
+    @Setup
+    public void setUp() throws Exception {
+        response = VehicleSoapEnvelope.page(size);
+        jsonb = JsonbBuilder.create();
+        jaxb = JAXBContext.newInstance(PagedVehicleResponseDto.class);
+        xmlOutput = new WstxOutputFactory();
+        xmlInput = new WstxInputFactory();
+
+        System.out.printf("%nsize=%d: JSON %d bytes, SOAP %d bytes%n", size, writeJson().length, writeSoap().length);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Benchmark
+    public PagedVehicleResponseDto json() {
+        return jsonb.fromJson(new ByteArrayInputStream(writeJson()), PagedVehicleResponseDto.class);
+    }
+
+    @Benchmark
+    public PagedVehicleResponseDto soap() throws JAXBException, XMLStreamException {
+        return VehicleSoapEnvelope.read(jaxb, xmlInput.createXMLStreamReader(new ByteArrayInputStream(writeSoap()), UTF_8.name()));
+    }
+
+    private byte[] writeJson() {
+        var body = new ByteArrayOutputStream();
+        jsonb.toJson(response, body);
+        return body.toByteArray();
+    }
+
+    private byte[] writeSoap() throws JAXBException, XMLStreamException {
+        var body = new ByteArrayOutputStream();
+        VehicleSoapEnvelope.write(jaxb, xmlOutput.createXMLStreamWriter(body, "UTF-8"), response);
+        return body.toByteArray();
+    }
+}
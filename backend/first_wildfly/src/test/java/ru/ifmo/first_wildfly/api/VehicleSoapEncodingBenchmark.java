@@ -0,0 +1,100 @@
+package ru.ifmo.first_wildfly.api;
+
+import com.ctc.wstx.stax.WstxInputFactory;
+import com.ctc.wstx.stax.WstxOutputFactory;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import jakarta.xml.bind.JAXBContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.first_wildfly.dto.PagedVehicleResponseDto;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Ответ getVehicles VehicleAPI ({@link VehicleSoapEnvelope}) в кодировках из цепочки CXF (jboss-webservices.xml):
+ * текстовый XML, XML со сжатием gzip и Fast Infoset. Каждый вызов — запись сервером и разбор клиентом.
+ * Размер тела в каждой кодировке печатается при подготовке каждого {@code size}; по этим числам выбраны порог
+ * {@link VehicleGzipOutInterceptor} и операции {@link VehicleFastInfosetOutInterceptor}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleSoapEncodingBenchmark {
+
+    @Param({"1", "5", "20", "100", "1000"})
+    private int size;
+
+    private PagedVehicleResponseDto response;
+    private JAXBContext jaxb;
+    private XMLOutputFactory xmlOutput;
+    private XMLInputFactory xmlInput;
+
+    @Setup
+    public void setUp() throws Exception {
+        response = VehicleSoapEnvelope.page(size);
+        jaxb = JAXBContext.newInstance(PagedVehicleResponseDto.class);
+        xmlOutput = new WstxOutputFactory();
+        xmlInput = new WstxInputFactory();
+
+        System.out.printf("%nsize=%d: XML %d bytes, gzip %d bytes, Fast Infoset %d bytes%n",
+                size, writeXml().length, writeGzip().length, writeFastInfoset().length);
+    }
+
+    @Benchmark
+    public PagedVehicleResponseDto xml() throws Exception {
+        return VehicleSoapEnvelope.read(jaxb, xmlInput.createXMLStreamReader(new ByteArrayInputStream(writeXml()), UTF_8.name()));
+    }
+
+    @Benchmark
+    public PagedVehicleResponseDto gzip() throws Exception {
+        try (var body = new GZIPInputStream(new ByteArrayInputStream(writeGzip()))) {
+            return VehicleSoapEnvelope.read(jaxb, xmlInput.createXMLStreamReader(body, UTF_8.name()));
+        }
+    }
+
+    @Benchmark
+    public PagedVehicleResponseDto fastInfoset() throws Exception {
+        return VehicleSoapEnvelope.read(jaxb, new StAXDocumentParser(new ByteArrayInputStream(writeFastInfoset())));
+    }
+
+    private byte[] writeXml() throws Exception {
+        var body = new ByteArrayOutputStream();
+        VehicleSoapEnvelope.write(jaxb, xmlOutput.createXMLStreamWriter(body, "UTF-8"), response);
+        return body.toByteArray();
+    }
+
+    private byte[] writeGzip() throws Exception {
+        var body = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(body)) {
+            VehicleSoapEnvelope.write(jaxb, xmlOutput.createXMLStreamWriter(gzip, "UTF-8"), response);
+        }
+        return body.toByteArray();
+    }
+
+    private byte[] writeFastInfoset() throws Exception {
+        var body = new ByteArrayOutputStream();
+        VehicleSoapEnvelope.write(jaxb, new StAXDocumentSerializer(body), response);
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,71 @@
+package ru.ifmo.first_wildfly.api;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import ru.ifmo.first_wildfly.dto.CoordinatesDto;
+import ru.ifmo.first_wildfly.dto.FuelTypeDto;
+import ru.ifmo.first_wildfly.dto.PagedVehicleResponseDto;
+import ru.ifmo.first_wildfly.dto.VehicleDto;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ответ getVehicles VehicleAPI в конверте SOAP 1.1 (document/literal wrapped), как его пишет и читает CXF:
+ * конверт и обертка операции — через StAX, содержимое {@code return} — через JAXB. Кодировка задается
+ * переданными XMLStreamWriter и XMLStreamReader.
+ */
+final class VehicleSoapEnvelope {
+
+    private static final String SOAP_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/";
+    private static final String SERVICE_NAMESPACE = "http://api.first_wildfly.ifmo.ru/";
+    private static final QName RETURN = new QName("return");
+
+    private VehicleSoapEnvelope() {
+    }
+
+    /**
+     * Страница ответа из {@code size} транспортных средств с типичными значениями полей.
+     */
+    static PagedVehicleResponseDto page(int size) {
+        List<VehicleDto> vehicles = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            vehicles.add(new VehicleDto(id, "Vehicle " + id, new CoordinatesDto(-100L * id, 50 * id),
+                    "2024-01-01T10:15:30+03:00", id % 7 == 0 ? null : 100 + id, 4, 12.5F,
+                    FuelTypeDto.values()[id % FuelTypeDto.values().length], 3L));
+        }
+        var response = new PagedVehicleResponseDto(vehicles, 1000, 1000 / Math.max(size, 1), 2);
+        response.setHasNext(true);
+        return response;
+    }
+
+    static void write(JAXBContext jaxb, XMLStreamWriter writer, PagedVehicleResponseDto response)
+            throws JAXBException, XMLStreamException {
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement("soap", "Envelope", SOAP_NAMESPACE);
+        writer.writeNamespace("soap", SOAP_NAMESPACE);
+        writer.writeStartElement("soap", "Body", SOAP_NAMESPACE);
+        writer.writeStartElement("ns2", "getVehiclesResponse", SERVICE_NAMESPACE);
+        writer.writeNamespace("ns2", SERVICE_NAMESPACE);
+        Marshaller marshaller = jaxb.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        marshaller.marshal(new JAXBElement<>(RETURN, PagedVehicleResponseDto.class, response), writer);
+        writer.writeEndDocument();
+        writer.close();
+    }
+
+    static PagedVehicleResponseDto read(JAXBContext jaxb, XMLStreamReader reader) throws JAXBException, XMLStreamException {
+        while (!(reader.isStartElement() && RETURN.getLocalPart().equals(reader.getLocalName()))) {
+            reader.next();
+        }
+        PagedVehicleResponseDto result = jaxb.createUnmarshaller().unmarshal(reader, PagedVehicleResponseDto.class).getValue();
+        reader.close();
+        return result;
+    }
+}
@@ -0,0 +1,69 @@
+package ru.ifmo.first_wildfly.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class DatabaseInitializerTest {
+
+    @Test
+    void testsRunOnPinnedH2Version() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:database_initializer_test");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT H2VERSION()")) {
+            rs.next();
+            assertEquals(DatabaseInitializer.H2_VERSION, rs.getString(1));
+        }
+    }
+
+    @Test
+    void dataSqlMatchesSchema() throws IOException {
+        String script;
+        try (InputStream in = DatabaseInitializer.class.getResourceAsStream("/data.sql")) {
+            assertNotNull(in, "data.sql");
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> statements = Arrays.stream(script.split(";"))
+                .map(DatabaseInitializerTest::normalize)
+                .filter(statement -> !statement.isEmpty())
+                .toList();
+
+        assertEquals(DatabaseInitializer.SCHEMA.stream().map(DatabaseInitializerTest::normalize).toList(), statements);
+    }
+
+    @Test
+    void schemaAppliesToEmptyDatabase() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:database_initializer_schema");
+             Statement statement = connection.createStatement()) {
+            for (String ddl : DatabaseInitializer.SCHEMA) {
+                statement.execute(ddl);
+            }
+            // повторный запуск ничего не ломает
+            for (String ddl : DatabaseInitializer.SCHEMA) {
+                statement.execute(ddl);
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT seq, compacted_seq FROM vehicle_change_counter")) {
+                rs.next();
+                assertEquals(0, rs.getLong(1));
+                assertEquals(0, rs.getLong(2));
+            }
+        }
+    }
+
+    // переводы строк и отступы в data.sql не важны
+    private static String normalize(String statement) {
+        return statement.strip().replaceAll("\\s+", " ").replace("( ", "(").replace(" )", ")");
+    }
+}
@@ -0,0 +1,69 @@
+package ru.ifmo.first_wildfly.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import ru.ifmo.first_wildfly.domain.entity.CoordinatesEntity;
+import ru.ifmo.first_wildfly.domain.entity.FuelType;
+import ru.ifmo.first_wildfly.domain.entity.VehicleEntity;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * База H2 в памяти со схемой и индексами vehicle, как в основной БД, и Hibernate поверх нее — окружение
+ * бенчмарков: тот же диалект и кэш разбора запросов, что в единице персистентности default, но без сервера
+ * приложений.
+ */
+final class VehicleBenchmarkDatabase {
+
+    private VehicleBenchmarkDatabase() {
+    }
+
+    /**
+     * Создает базу {@code name} с {@code vehicles} строками (повторяемые псевдослучайные значения, часть
+     * enginePower и numberOfWheels — NULL) и открывает для нее SessionFactory.
+     */
+    static SessionFactory open(String name, int vehicles) throws SQLException {
+        String url = "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url)) {
+            VehicleChangeBatch.createSchema(connection);
+            VehicleChangeBatch.apply(connection, rows(vehicles), List.of());
+        }
+        return new Configuration()
+                .addAnnotatedClass(VehicleEntity.class)
+                .addAnnotatedClass(CoordinatesEntity.class)
+                .setProperty("hibernate.connection.url", url)
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+                .setProperty("hibernate.hbm2ddl.auto", "none")
+                .setProperty("hibernate.query.plan_cache_enabled", "true")
+                .setProperty("hibernate.query.plan_cache_max_size", "2048")
+                .buildSessionFactory();
+    }
+
+    private static List<Object[]> rows(int vehicles) {
+        Random random = new Random(42);
+        OffsetDateTime created = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        FuelType[] fuelTypes = FuelType.values();
+        List<Object[]> rows = new ArrayList<>(vehicles);
+        for (int id = 1; id <= vehicles; id++) {
+            rows.add(new Object[]{
+                    id,
+                    "Vehicle " + random.nextInt(vehicles),
+                    (long) random.nextInt(20_001) - 10_000,
+                    random.nextInt(20_001) - 10_000,
+                    created.plusMinutes(id),
+                    random.nextInt(10) == 0 ? null : 1L + random.nextInt(1000),
+                    random.nextInt(10) == 0 ? null : 1L + random.nextInt(8),
+                    1F + random.nextInt(100),
+                    fuelTypes[random.nextInt(fuelTypes.length)].name(),
+                    0L});
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.ifmo.first_wildfly.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.ifmo.first_wildfly.config.DatabaseInitializer;
+import ru.ifmo.first_wildfly.dto.VehicleChangeDto;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VehicleChangeBatchTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.of(2024, 6, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private Connection connection;
+
+    @BeforeEach
+    void createChangeLog() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:vehicle_change_batch_test;MODE=PostgreSQL");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(DatabaseInitializer.CREATE_CHANGE_TABLE);
+            statement.execute(DatabaseInitializer.CREATE_CHANGE_COUNTER_TABLE);
+            statement.execute(DatabaseInitializer.ADD_COMPACTED_SEQUENCE_COLUMN);
+            statement.execute(DatabaseInitializer.CHANGE_INDEX);
+            statement.execute("INSERT INTO vehicle_change_counter(id, seq) VALUES (1, 0)");
+        }
+    }
+
+    @AfterEach
+    void dropChangeLog() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void compactKeepsLatestChangePerVehicle() throws SQLException {
+        append(1, 1, VehicleChangeDto.UPSERT, NOW);
+        append(2, 2, VehicleChangeDto.UPSERT, NOW);
+        append(3, 1, VehicleChangeDto.UPSERT, NOW);
+        append(4, 2, VehicleChangeDto.DELETE, NOW);
+        append(5, 3, VehicleChangeDto.UPSERT, NOW);
+        append(6, 1, VehicleChangeDto.UPSERT, NOW);
+
+        int removed = VehicleChangeBatch.compact(connection, NOW.minusDays(7));
+
+        assertEquals(3, removed);
+        assertEquals(List.of("4:2:DELETE", "5:3:UPSERT", "6:1:UPSERT"), changes());
+        assertEquals(0, compactedSequence());
+    }
+
+    @Test
+    void compactDropsExpiredDeletesAndRecordsLastOne() throws SQLException {
+        append(1, 1, VehicleChangeDto.UPSERT, NOW.minusDays(10));
+        append(2, 1, VehicleChangeDto.DELETE, NOW.minusDays(9));
+        append(3, 2, VehicleChangeDto.UPSERT, NOW.minusDays(9));
+        append(4, 3, VehicleChangeDto.DELETE, NOW.minusDays(8));
+        append(5, 4, VehicleChangeDto.DELETE, NOW.minusDays(1));
+
+        int removed = VehicleChangeBatch.compact(connection, NOW.minusDays(7));
+
+        assertEquals(3, removed);
+        assertEquals(List.of("3:2:UPSERT", "5:4:DELETE"), changes());
+        assertEquals(4, compactedSequence());
+    }
+
+    @Test
+    void compactNeverLowersCompactedSequence() throws SQLException {
+        append(1, 1, VehicleChangeDto.DELETE, NOW.minusDays(10));
+        VehicleChangeBatch.compact(connection, NOW.minusDays(7));
+        append(2, 2, VehicleChangeDto.UPSERT, NOW);
+
+        int removed = VehicleChangeBatch.compact(connection, NOW.minusDays(7));
+
+        assertEquals(0, removed);
+        assertEquals(List.of("2:2:UPSERT"), changes());
+        assertEquals(1, compactedSequence());
+    }
+
+    private void append(long seq, int vehicleId, String type, OffsetDateTime changedAt) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO vehicle_change(seq, vehicle_id, change_type, changed_at) VALUES (?, ?, ?, ?)")) {
+            insert.setLong(1, seq);
+            insert.setInt(2, vehicleId);
+            insert.setString(3, type);
+            insert.setObject(4, changedAt);
+            insert.executeUpdate();
+        }
+    }
+
+    private List<String> changes() throws SQLException {
+        List<String> changes = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT seq, vehicle_id, change_type FROM vehicle_change ORDER BY seq")) {
+            while (rs.next()) {
+                changes.add(rs.getLong(1) + ":" + rs.getInt(2) + ":" + rs.getString(3));
+            }
+        }
+        return changes;
+    }
+
+    private long compactedSequence() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT compacted_seq FROM vehicle_change_counter WHERE id = 1")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ru.ifmo.first_wildfly.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.ifmo.first_wildfly.domain.VehicleView;
+import ru.ifmo.first_wildfly.domain.entity.FuelType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VehicleNameIndexTest {
+
+    private final VehicleNameIndex index = new VehicleNameIndex();
+
+    @BeforeEach
+    void fill() {
+        index.reset(List.of(
+                vehicle(1, "Carrier"),
+                vehicle(2, "car"),
+                vehicle(3, "Cart"),
+                vehicle(4, "Bus"),
+                vehicle(5, "CARGO"),
+                vehicle(6, "Cab")));
+    }
+
+    @Test
+    void ranksExactMatchThenShorterNamesThenAlphabetically() {
+        assertEquals(List.of(2, 3, 5, 1), ids(index.search("CAR", 10)));
+    }
+
+    @Test
+    void stopsAtLimit() {
+        assertEquals(List.of(6, 2), ids(index.search("ca", 2)));
+        assertEquals(List.of(), ids(index.search("ca", 0)));
+    }
+
+    @Test
+    void doesNotMatchInsideName() {
+        assertEquals(List.of(), ids(index.search("ar", 10)));
+    }
+
+    @Test
+    void appliesRenameAndDelete() {
+        index.apply(vehicle(3, "Cart"), vehicle(3, "Bicycle"));
+        index.apply(vehicle(2, "car"), null);
+
+        assertEquals(List.of(5, 1), ids(index.search("car", 10)));
+        assertEquals(List.of(3), ids(index.search("bi", 10)));
+    }
+
+    private static VehicleView vehicle(int id, String name) {
+        return new VehicleView(id, name, 0L, 0, null, null, null, 1F, FuelType.DIESEL, 0L);
+    }
+
+    private static List<Integer> ids(List<VehicleView> vehicles) {
+        return vehicles.stream().map(VehicleView::id).toList();
+    }
+}
@@ -0,0 +1,128 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.first_wildfly.domain.VehicleSearchCriteria;
+import ru.ifmo.first_wildfly.domain.VehicleView;
+import ru.ifmo.first_wildfly.domain.entity.VehicleEntity;
+import ru.ifmo.first_wildfly.dto.CoordinatesDto;
+import ru.ifmo.first_wildfly.dto.FuelTypeDto;
+import ru.ifmo.first_wildfly.dto.VehicleDto;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Bound;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Kind;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+/**
+ * Страница списка из {@code size} транспортных средств, преобразованная в {@link VehicleDto}:
+ * <ul>
+ *     <li>{@link #entityHydration} — как до DTO-проекции: управляемые {@link VehicleEntity} в контексте
+ *     персистентности (снимок состояния для dirty checking, встраиваемые координаты), затем копирование в DTO;</li>
+ *     <li>{@link #viewProjection} — конструктор-выражение в {@link VehicleView} прямо из запроса, без контекста
+ *     персистентности, затем то же копирование в DTO.</li>
+ * </ul>
+ * Запрос, порядок и преобразование даты одинаковы, различается только способ чтения строк.
+ * Аллокации на страницу показывает {@code -prof gc} (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleProjectionBenchmark {
+
+    private static final int VEHICLES = 10_000;
+
+    @Param({"20", "100"})
+    private int size;
+
+    private SessionFactory sessionFactory;
+    private EntityManager entityManager;
+    private String viewJpql;
+    private Bound bound;
+
+    @Setup
+    public void setUp() throws SQLException {
+        sessionFactory = VehicleBenchmarkDatabase.open("projection_benchmark", VEHICLES);
+        entityManager = sessionFactory.createEntityManager();
+        bound = Bound.of(new VehicleSearchCriteria());
+        viewJpql = VehicleQueries.jpql(bound.shape("id", false, Kind.PAGE));
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public List<VehicleDto> entityHydration() {
+        List<VehicleDto> page = entityManager.createQuery("SELECT v FROM VehicleEntity v ORDER BY v.id ASC", VehicleEntity.class)
+                .setFirstResult(size)
+                .setMaxResults(size)
+                .getResultList()
+                .stream()
+                .map(VehicleProjectionBenchmark::toDto)
+                .toList();
+        entityManager.clear();
+        return page;
+    }
+
+    @Benchmark
+    public List<VehicleDto> viewProjection() {
+        List<VehicleDto> page = bound.bind(entityManager.createQuery(viewJpql, VehicleView.class))
+                .setFirstResult(size)
+                .setMaxResults(size)
+                .getResultList()
+                .stream()
+                .map(VehicleProjectionBenchmark::toDto)
+                .toList();
+        entityManager.clear();
+        return page;
+    }
+
+    private static VehicleDto toDto(VehicleEntity e) {
+        return new VehicleDto(
+                e.getId(),
+                e.getName(),
+                new CoordinatesDto(e.getCoordinates().getX(), e.getCoordinates().getY()),
+                e.getCreationDate() != null ? e.getCreationDate().format(ISO_OFFSET_DATE_TIME) : null,
+                e.getEnginePower() != null ? e.getEnginePower().intValue() : null,
+                e.getNumberOfWheels() != null ? e.getNumberOfWheels().intValue() : null,
+                e.getCapacity(),
+                FuelTypeDto.valueOf(e.getFuelType().name()),
+                e.getVersion()
+        );
+    }
+
+    private static VehicleDto toDto(VehicleView v) {
+        return new VehicleDto(
+                v.id(),
+                v.name(),
+                new CoordinatesDto(v.x(), v.y()),
+                v.creationDate() != null ? v.creationDate().format(ISO_OFFSET_DATE_TIME) : null,
+                v.enginePower() != null ? v.enginePower().intValue() : null,
+                v.numberOfWheels() != null ? v.numberOfWheels().intValue() : null,
+                v.capacity(),
+                FuelTypeDto.valueOf(v.fuelType().name()),
+                v.version()
+        );
+    }
+}
@@ -0,0 +1,242 @@
+package ru.ifmo.first_wildfly.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.ifmo.first_wildfly.domain.VehicleSearchCriteria;
+import ru.ifmo.first_wildfly.domain.VehicleView;
+import ru.ifmo.first_wildfly.domain.entity.FuelType;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Bound;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Kind;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Shape;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VehicleQueriesTest {
+
+    private static final Bound NO_FILTERS = Bound.of(new VehicleSearchCriteria());
+
+    private static final OffsetDateTime CREATED = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static Connection connection;
+    private static List<VehicleView> vehicles;
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:vehicle_queries_test;MODE=PostgreSQL");
+        VehicleChangeBatch.createSchema(connection);
+
+        // повторяющиеся значения и NULL, чтобы порядок внутри равных ключей решал id
+        vehicles = new ArrayList<>();
+        Long[] powers = {null, 50L, 10L, null, 50L, 30L, 10L, null, 70L, 30L, 50L, null, 10L};
+        for (int i = 0; i < powers.length; i++) {
+            int id = i + 1;
+            vehicles.add(new VehicleView(id, "car" + (char) ('a' + i % 4), (long) -i, i, CREATED.toZonedDateTime(),
+                    powers[i], i % 3 == 0 ? null : (long) (i % 5 + 1), (float) (i % 4 + 1),
+                    FuelType.values()[i % FuelType.values().length], 0L));
+        }
+        List<Object[]> rows = vehicles.stream()
+                .map(v -> new Object[]{v.id(), v.name(), v.x(), v.y(), CREATED, v.enginePower(), v.numberOfWheels(),
+                        v.capacity(), v.fuelType().name(), v.version()})
+                .toList();
+        VehicleChangeBatch.apply(connection, rows, List.of());
+    }
+
+    @AfterAll
+    static void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void pageOrdersNullableColumnWithNullsFirstInBothDirections() {
+        assertEquals("SELECT new ru.ifmo.first_wildfly.domain.VehicleView(v.id, v.name, v.coordinates.x, v.coordinates.y, " +
+                        "v.creationDate, v.enginePower, v.numberOfWheels, v.capacity, v.fuelType, v.version) FROM VehicleEntity v " +
+                        "ORDER BY v.enginePower DESC NULLS FIRST, v.id DESC",
+                VehicleQueries.jpql(NO_FILTERS.shape("enginePower", true, Kind.PAGE)));
+        assertTrue(VehicleQueries.jpql(NO_FILTERS.shape("numberOfWheels", false, Kind.PAGE))
+                .endsWith(" ORDER BY v.numberOfWheels ASC NULLS FIRST, v.id ASC"));
+        assertTrue(VehicleQueries.jpql(NO_FILTERS.shape("capacity", true, Kind.PAGE))
+                .endsWith(" ORDER BY v.capacity DESC, v.id DESC"));
+        assertTrue(VehicleQueries.jpql(NO_FILTERS.shape("id", true, Kind.PAGE)).endsWith(" ORDER BY v.id DESC"));
+    }
+
+    @Test
+    void cursorPredicateIsBoundedOnSortColumn() {
+        assertTrue(VehicleQueries.jpql(NO_FILTERS.shape("enginePower", false, Kind.CURSOR_AFTER))
+                .endsWith(" WHERE v.enginePower >= :cursorValue AND (v.enginePower > :cursorValue OR v.id > :cursorId)" +
+                        " ORDER BY v.enginePower ASC NULLS FIRST, v.id ASC"));
+        assertTrue(VehicleQueries.jpql(NO_FILTERS.shape("enginePower", true, Kind.CURSOR_AFTER_NULL))
+                .endsWith(" WHERE ((v.enginePower IS NULL AND v.id < :cursorId) OR v.enginePower IS NOT NULL)" +
+                        " ORDER BY v.enginePower DESC NULLS FIRST, v.id DESC"));
+        assertTrue(VehicleQueries.jpql(NO_FILTERS.shape("id", true, Kind.CURSOR_AFTER))
+                .endsWith(" WHERE v.id < :cursorId ORDER BY v.id DESC"));
+    }
+
+    @Test
+    void cursorPredicateFollowsFilters() {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setMinEnginePower(20);
+        Bound bound = Bound.of(criteria);
+        assertTrue(VehicleQueries.sql(bound.shape("name", false, Kind.CURSOR_AFTER))
+                .endsWith(" WHERE engine_power >= ? AND name >= ? AND (name > ? OR id > ?) ORDER BY name ASC, id ASC LIMIT ?"));
+    }
+
+    @Test
+    void queriesNeverWrapSortColumnInExpression() {
+        for (String sort : VehicleQueries.SORT_FIELDS) {
+            for (Kind kind : List.of(Kind.PAGE, Kind.CURSOR_FIRST, Kind.CURSOR_AFTER)) {
+                assertFalse(VehicleQueries.jpql(NO_FILTERS.shape(sort, true, kind)).contains("COALESCE"), sort);
+            }
+            assertFalse(VehicleQueries.sql(NO_FILTERS.shape(sort, true, Kind.CURSOR_AFTER)).contains("COALESCE"), sort);
+        }
+    }
+
+    @Test
+    void nameFilterMatchesSubstringIgnoringCase() throws SQLException {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setName("RB");
+        Bound bound = Bound.of(criteria);
+        Shape shape = bound.shape("id", false, Kind.CURSOR_FIRST);
+        assertEquals(List.of(2, 6, 10), ids(VehicleQueries.sql(shape), bound.sqlParameters(shape, null, null, 100)));
+
+        criteria.setName("Ar");
+        bound = Bound.of(criteria);
+        assertEquals(vehicles.size(), ids(VehicleQueries.sql(shape), bound.sqlParameters(shape, null, null, 100)).size());
+
+        criteria.setName("bus");
+        bound = Bound.of(criteria);
+        assertEquals(List.of(), ids(VehicleQueries.sql(shape), bound.sqlParameters(shape, null, null, 100)));
+    }
+
+    @Test
+    void everyPlanSampleUsesIndex() throws SQLException {
+        for (var sample : VehicleQueryPlans.samples().entrySet()) {
+            String plan = explain(sample.getValue().sql(), sample.getValue().parameters().toArray());
+            assertFalse(plan.contains("tableScan"), sample.getKey() + ": " + plan);
+        }
+    }
+
+    @Test
+    void cursorKindDistinguishesNullValue() {
+        assertEquals(Kind.CURSOR_FIRST, VehicleQueries.cursorKind("enginePower", null, null));
+        assertEquals(Kind.CURSOR_AFTER_NULL, VehicleQueries.cursorKind("enginePower", 3, null));
+        assertEquals(Kind.CURSOR_AFTER, VehicleQueries.cursorKind("enginePower", 3, 10L));
+        assertEquals(Kind.CURSOR_AFTER, VehicleQueries.cursorKind("id", 3, null));
+    }
+
+    @Test
+    void keysetWalkMatchesExpectedOrder() throws SQLException {
+        for (String sort : VehicleQueries.SORT_FIELDS) {
+            for (boolean desc : new boolean[]{false, true}) {
+                List<Integer> expected = vehicles.stream()
+                        .sorted(order(sort, desc))
+                        .map(VehicleView::id)
+                        .toList();
+                assertEquals(expected, walk(sort, desc, 2), sort + (desc ? " desc" : " asc"));
+            }
+        }
+    }
+
+    @Test
+    void cursorOnNullableColumnReadsIndexFromCursorPosition() throws SQLException {
+        for (boolean desc : new boolean[]{false, true}) {
+            String plan = explain(VehicleQueries.sql(NO_FILTERS.shape("enginePower", desc, Kind.CURSOR_AFTER)), 30L, 30L, 6, 5);
+            assertFalse(plan.contains("tableScan"), plan);
+            assertTrue(plan.contains("ENGINE_POWER " + (desc ? "<=" : ">=")), plan);
+            assertTrue(plan.contains("index sorted"), plan);
+        }
+    }
+
+    /**
+     * Проходит всю таблицу страницами keyset-пагинации.
+     */
+    private static List<Integer> walk(String sort, boolean desc, int size) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        VehicleView last = null;
+        while (true) {
+            Object cursorValue = last == null ? null : sortValue(last, sort);
+            Kind kind = VehicleQueries.cursorKind(sort, last == null ? null : last.id(), cursorValue);
+            Shape shape = NO_FILTERS.shape(sort, desc, kind);
+            List<Integer> page = ids(VehicleQueries.sql(shape),
+                    NO_FILTERS.sqlParameters(shape, last == null ? null : last.id(), cursorValue, size));
+            ids.addAll(page);
+            if (page.size() < size) {
+                return ids;
+            }
+            last = vehicles.get(ids.get(ids.size() - 1) - 1);
+        }
+    }
+
+    /**
+     * Ожидаемый порядок ORDER BY из {@link VehicleQueries}: ключ сортировки (NULL первым при любом направлении), затем id.
+     */
+    private static Comparator<VehicleView> order(String sort, boolean desc) {
+        Comparator<VehicleView> id = desc
+                ? Comparator.comparing(VehicleView::id, Comparator.reverseOrder())
+                : Comparator.comparing(VehicleView::id);
+        Comparator<VehicleView> key = switch (sort) {
+            case "name" -> Comparator.comparing(VehicleView::name, direction(desc));
+            case "enginePower" -> Comparator.comparing(VehicleView::enginePower, Comparator.nullsFirst(direction(desc)));
+            case "numberOfWheels" -> Comparator.comparing(VehicleView::numberOfWheels, Comparator.nullsFirst(direction(desc)));
+            case "capacity" -> Comparator.comparing(VehicleView::capacity, direction(desc));
+            case "fuelType" -> Comparator.comparing(v -> v.fuelType().name(), direction(desc));
+            default -> id;
+        };
+        return key == id ? id : key.thenComparing(id);
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<T> direction(boolean desc) {
+        return desc ? Comparator.reverseOrder() : Comparator.naturalOrder();
+    }
+
+    private static List<Integer> ids(String sql, List<Object> parameters) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static Object sortValue(VehicleView v, String sort) {
+        return switch (sort) {
+            case "name" -> v.name();
+            case "enginePower" -> v.enginePower();
+            case "numberOfWheels" -> v.numberOfWheels();
+            case "capacity" -> v.capacity();
+            case "fuelType" -> v.fuelType().name();
+            default -> v.id();
+        };
+    }
+
+    private static String explain(String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getString(1).replaceAll("\\s+", " ");
+            }
+        }
+    }
+}
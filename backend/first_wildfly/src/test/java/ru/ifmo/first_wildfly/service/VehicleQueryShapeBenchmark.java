@@ -0,0 +1,182 @@
+package ru.ifmo.first_wildfly.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.first_wildfly.domain.VehicleSearchCriteria;
+import ru.ifmo.first_wildfly.domain.VehicleView;
+import ru.ifmo.first_wildfly.domain.entity.CoordinatesEntity;
+import ru.ifmo.first_wildfly.domain.entity.FuelType;
+import ru.ifmo.first_wildfly.domain.entity.VehicleEntity;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Bound;
+import ru.ifmo.first_wildfly.service.VehicleQueries.Kind;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Страница getVehicles (COUNT и выборка страницы с тремя фильтрами и сортировкой) двумя способами:
+ * <ul>
+ *     <li>{@link #criteriaTrees} — как до кэширования форм запроса: два дерева Criteria на запрос,
+ *     поиск атрибутов по строкам, {@code List.of(...)} в проверке поля сортировки;</li>
+ *     <li>{@link #cachedShapes} — {@link VehicleQueries}: текст JPQL формы берется из кэша, Hibernate
+ *     находит разбор в query plan cache, связываются только параметры.</li>
+ * </ul>
+ * Оба варианта выдают один и тот же SQL и выполняют его на H2 в памяти, поэтому разница во времени
+ * и аллокациях — стоимость построения запроса, а абсолютное время — полная стоимость запроса в сервисе
+ * без сети и сервера приложений.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleQueryShapeBenchmark {
+
+    private static final int VEHICLES = 10_000;
+    private static final int PAGE = 3;
+    private static final int SIZE = 20;
+    private static final String SORT = "capacity";
+
+    private SessionFactory sessionFactory;
+    private EntityManager entityManager;
+    private VehicleSearchCriteria criteria;
+
+    @Setup
+    public void setUp() throws SQLException {
+        sessionFactory = VehicleBenchmarkDatabase.open("query_shape_benchmark", VEHICLES);
+        entityManager = sessionFactory.createEntityManager();
+        criteria = new VehicleSearchCriteria();
+        criteria.setMinEnginePower(100);
+        criteria.setMaxCapacity(BigDecimal.valueOf(80));
+        criteria.setFuelType(FuelType.DIESEL.name());
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public List<VehicleView> criteriaTrees() {
+        String sortField = isValidSortField(SORT) ? SORT : "id";
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<VehicleEntity> countRoot = countQuery.from(VehicleEntity.class);
+        countQuery.select(cb.count(countRoot));
+        applyFilters(countRoot, countQuery, cb, criteria);
+        Long total = entityManager.createQuery(countQuery).getSingleResult();
+        if (total == 0) {
+            return List.of();
+        }
+
+        CriteriaQuery<VehicleView> query = cb.createQuery(VehicleView.class);
+        Root<VehicleEntity> root = query.from(VehicleEntity.class);
+        query.select(vehicleView(cb, root));
+        applyFilters(root, query, cb, criteria);
+        // тот же порядок, что у VehicleQueries (с id для однозначности), чтобы SQL и план совпадали
+        query.orderBy(cb.desc(root.get(sortField)), cb.desc(root.get("id")));
+        List<VehicleView> content = entityManager.createQuery(query)
+                .setFirstResult((PAGE - 1) * SIZE)
+                .setMaxResults(SIZE + 1)
+                .getResultList();
+        entityManager.clear();
+        return content;
+    }
+
+    @Benchmark
+    public List<VehicleView> cachedShapes() {
+        String sortField = VehicleQueries.SORT_FIELDS.contains(SORT) ? SORT : "id";
+        Bound bound = Bound.of(criteria);
+
+        Long total = bound.bind(entityManager.createQuery(VehicleQueries.jpql(bound.shape("id", false, Kind.COUNT)), Long.class))
+                .getSingleResult();
+        if (total == 0) {
+            return List.of();
+        }
+
+        List<VehicleView> content = bound.bind(entityManager.createQuery(
+                        VehicleQueries.jpql(bound.shape(sortField, true, Kind.PAGE)), VehicleView.class))
+                .setFirstResult((PAGE - 1) * SIZE)
+                .setMaxResults(SIZE + 1)
+                .getResultList();
+        entityManager.clear();
+        return content;
+    }
+
+    private static Selection<VehicleView> vehicleView(CriteriaBuilder cb, Root<VehicleEntity> root) {
+        Path<CoordinatesEntity> coordinates = root.get("coordinates");
+        return cb.construct(VehicleView.class,
+                root.get("id"),
+                root.get("name"),
+                coordinates.get("x"),
+                coordinates.get("y"),
+                root.get("creationDate"),
+                root.get("enginePower"),
+                root.get("numberOfWheels"),
+                root.get("capacity"),
+                root.get("fuelType"),
+                root.get("version")
+        );
+    }
+
+    private static void applyFilters(Root<VehicleEntity> root, CriteriaQuery<?> query, CriteriaBuilder cb, VehicleSearchCriteria c) {
+        Predicate predicate = cb.conjunction();
+
+        if (c.getName() != null && !c.getName().isEmpty()) {
+            predicate = cb.and(predicate, cb.like(root.get("nameLower"), "%" + c.getName().toLowerCase() + "%"));
+        }
+        if (c.getMinEnginePower() != null) {
+            predicate = cb.and(predicate, cb.ge(root.get("enginePower"), c.getMinEnginePower().longValue()));
+        }
+        if (c.getMaxEnginePower() != null) {
+            predicate = cb.and(predicate, cb.le(root.get("enginePower"), c.getMaxEnginePower().longValue()));
+        }
+        if (c.getMinWheels() != null) {
+            predicate = cb.and(predicate, cb.ge(root.get("numberOfWheels"), c.getMinWheels().longValue()));
+        }
+        if (c.getMaxWheels() != null) {
+            predicate = cb.and(predicate, cb.le(root.get("numberOfWheels"), c.getMaxWheels().longValue()));
+        }
+        if (c.getMinCapacity() != null) {
+            predicate = cb.and(predicate, cb.gt(root.get("capacity"), c.getMinCapacity().floatValue()));
+        }
+        if (c.getMaxCapacity() != null) {
+            predicate = cb.and(predicate, cb.le(root.get("capacity"), c.getMaxCapacity().floatValue()));
+        }
+        if (c.getFuelType() != null && !c.getFuelType().isEmpty()) {
+            try {
+                predicate = cb.and(predicate, cb.equal(root.get("fuelType"), FuelType.valueOf(c.getFuelType())));
+            } catch (IllegalArgumentException ignored) {
+                predicate = cb.and(predicate, cb.disjunction());
+            }
+        }
+
+        query.where(predicate);
+    }
+
+    private static boolean isValidSortField(String field) {
+        return List.of("id", "name", "enginePower", "numberOfWheels", "capacity", "fuelType").contains(field);
+    }
+}
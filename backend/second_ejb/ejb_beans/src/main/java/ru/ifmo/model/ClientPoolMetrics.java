@@ -0,0 +1,73 @@
+package ru.ifmo.model;
+
+import java.util.List;
+
+public class ClientPoolMetrics {
+    private Integer maxConnectionsPerHost;
+    private Integer connectTimeoutMillis;
+    private Integer readTimeoutMillis;
+    private Integer acquireTimeoutMillis;
+    private Integer cachedTlsSessions;
+    private List<HostPool> hosts;
+
+    public static class HostPool {
+        private String host;
+        private Integer limit;
+        private Integer inUse;
+        private Integer peakInUse;
+        private Integer queued;
+        private Long requests;
+        private Long waited;
+        private Long rejected;
+        private Long failures;
+        private Double utilization;
+
+        public String getHost() { return host; }
+        public void setHost(String host) { this.host = host; }
+
+        public Integer getLimit() { return limit; }
+        public void setLimit(Integer limit) { this.limit = limit; }
+
+        public Integer getInUse() { return inUse; }
+        public void setInUse(Integer inUse) { this.inUse = inUse; }
+
+        public Integer getPeakInUse() { return peakInUse; }
+        public void setPeakInUse(Integer peakInUse) { this.peakInUse = peakInUse; }
+
+        public Integer getQueued() { return queued; }
+        public void setQueued(Integer queued) { this.queued = queued; }
+
+        public Long getRequests() { return requests; }
+        public void setRequests(Long requests) { this.requests = requests; }
+
+        public Long getWaited() { return waited; }
+        public void setWaited(Long waited) { this.waited = waited; }
+
+        public Long getRejected() { return rejected; }
+        public void setRejected(Long rejected) { this.rejected = rejected; }
+
+        public Long getFailures() { return failures; }
+        public void setFailures(Long failures) { this.failures = failures; }
+
+        public Double getUtilization() { return utilization; }
+        public void setUtilization(Double utilization) { this.utilization = utilization; }
+    }
+
+    public Integer getMaxConnectionsPerHost() { return maxConnectionsPerHost; }
+    public void setMaxConnectionsPerHost(Integer maxConnectionsPerHost) { this.maxConnectionsPerHost = maxConnectionsPerHost; }
+
+    public Integer getConnectTimeoutMillis() { return connectTimeoutMillis; }
+    public void setConnectTimeoutMillis(Integer connectTimeoutMillis) { this.connectTimeoutMillis = connectTimeoutMillis; }
+
+    public Integer getReadTimeoutMillis() { return readTimeoutMillis; }
+    public void setReadTimeoutMillis(Integer readTimeoutMillis) { this.readTimeoutMillis = readTimeoutMillis; }
+
+    public Integer getAcquireTimeoutMillis() { return acquireTimeoutMillis; }
+    public void setAcquireTimeoutMillis(Integer acquireTimeoutMillis) { this.acquireTimeoutMillis = acquireTimeoutMillis; }
+
+    public Integer getCachedTlsSessions() { return cachedTlsSessions; }
+    public void setCachedTlsSessions(Integer cachedTlsSessions) { this.cachedTlsSessions = cachedTlsSessions; }
+
+    public List<HostPool> getHosts() { return hosts; }
+    public void setHosts(List<HostPool> hosts) { this.hosts = hosts; }
+}
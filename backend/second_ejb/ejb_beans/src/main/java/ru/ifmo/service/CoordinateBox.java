@@ -0,0 +1,26 @@
+package ru.ifmo.service;
+
+/**
+ * Квадрат со стороной 2 * distance вокруг точки, описанный вокруг круга поиска.
+ * Границы, выходящие за диапазон типа координаты, обрезаются по нему.
+ */
+record CoordinateBox(long minX, long maxX, int minY, int maxY) {
+
+    /**
+     * @param distance неотрицательное расстояние
+     */
+    static CoordinateBox around(long x, int y, long distance) {
+        long minX = x - distance;
+        long maxX = x + distance;
+        // разности с границами int считаются в long и не переполняются
+        return new CoordinateBox(
+                minX > x ? Long.MIN_VALUE : minX,
+                maxX < x ? Long.MAX_VALUE : maxX,
+                distance >= (long) y - Integer.MIN_VALUE ? Integer.MIN_VALUE : (int) (y - distance),
+                distance >= (long) Integer.MAX_VALUE - y ? Integer.MAX_VALUE : (int) (y + distance));
+    }
+
+    boolean contains(long x, int y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+}
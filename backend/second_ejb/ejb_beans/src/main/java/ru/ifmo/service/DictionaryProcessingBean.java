@@ -1,33 +1,39 @@
 package ru.ifmo.service;
 
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Remote;
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
-import jakarta.ws.rs.client.ClientBuilder;
-import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.client.WebTarget;
 import jakarta.ws.rs.core.GenericType;
-import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
 import ru.ifmo.external.model.Coordinates;
 import ru.ifmo.external.model.Vehicle;
-import ru.ifmo.external.model.VehicleUpdate;
 import ru.ifmo.external.model.VehiclesGet200Response;
+import ru.ifmo.model.ClientPoolMetrics;
 import ru.ifmo.model.MaintenanceRecord;
 import ru.ifmo.model.MaintenanceReport;
 import ru.ifmo.model.MaintenanceStatistics;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
-import java.security.cert.X509Certificate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static java.util.Collections.emptyList;
 import static java.util.Objects.isNull;
@@ -40,10 +46,32 @@ import static java.util.stream.Stream.concat;
 @Remote(DictionaryProcessingRemote.class)
 public class DictionaryProcessingBean implements DictionaryProcessingRemote {
 
-    private static final String EXTERNAL_SERVICE_BASE_URL = "https://haproxy:8443/api";
+    static final String EXTERNAL_SERVICE_BASE_URL = "https://haproxy:8443/api";
+    private static final int PAGE_FETCH_CONCURRENCY = 8;
+
+    /**
+     * Номер журнала изменений первого сервиса, под которым зафиксировано изменение из ответа.
+     */
+    private static final String CHANGE_SEQUENCE = "X-Change-Sequence";
+
+    @EJB
+    private ExternalServiceClient externalServiceClient;
+
+    @EJB
+    private VehicleReadModel vehicleReadModel;
+
+    @EJB
+    private VehicleRevisionCache vehicleRevisionCache;
+
+    @Resource
+    private ManagedExecutorService managedExecutorService;
 
     @Override
     public List<Vehicle> searchVehiclesByEnginePower(Integer from, Integer to) {
+        var local = vehicleReadModel.findByEnginePower(from, to);
+        if (local.isPresent()) {
+            return local.get();
+        }
         var firstPage = getVehiclesPageByEnginePower(from, to, 1);
         var totalPages = firstPage.getTotalPages();
         if (nonNull(totalPages) && totalPages > 1) {
@@ -57,24 +85,52 @@ public class DictionaryProcessingBean implements DictionaryProcessingRemote {
 
     @Override
     public Vehicle addWheelsToVehicle(Integer vehicleId, Integer numberOfWheels) {
-        var context = buildSSLContext();
-        try (var client = ClientBuilder.newBuilder()
-                .sslContext(context)
-                .hostnameVerifier((hostname, session) -> true)
-                .build()) {
-            WebTarget target = client.target(EXTERNAL_SERVICE_BASE_URL)
-                    .path("/vehicles/" + vehicleId);
-
-            var vehicleUpdate = new VehicleUpdate().numberOfWheels(numberOfWheels);
-            return target.request().post(Entity.entity(vehicleUpdate, MediaType.APPLICATION_JSON_TYPE), Vehicle.class);
+        WebTarget target = externalServiceClient.target(EXTERNAL_SERVICE_BASE_URL)
+                .path("/vehicles/" + vehicleId + "/add-wheels/" + numberOfWheels);
+
+        return externalServiceClient.execute(target, request -> {
+            try (Response response = request.method("PATCH")) {
+                if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                    throw new WebApplicationException(response.getStatus());
+                }
+                var vehicle = response.readEntity(Vehicle.class);
+                vehicleReadModel.written(vehicle, changeSequence(response));
+                return vehicle;
+            }
+        });
+    }
+
+    /**
+     * Номер из X-Change-Sequence; 0, если заголовка нет или он не число.
+     */
+    private static long changeSequence(Response response) {
+        var value = response.getHeaderString(CHANGE_SEQUENCE);
+        if (isNull(value)) {
+            return 0;
         }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public ClientPoolMetrics getClientPoolMetrics() {
+        return externalServiceClient.getMetrics();
     }
 
     @Override
     public List<Vehicle> searchVehiclesByCoordinates(Long x, Integer y, Integer maxDistance) {
-        var firstPage = getVehiclesPage(1);
+        var local = vehicleReadModel.findWithin(x, y, maxDistance);
+        if (local.isPresent()) {
+            return local.get();
+        }
+        // первый сервис отдает только квадрат вокруг точки, точная проверка по кругу — здесь
+        var box = CoordinateBox.around(x, y, maxDistance);
+        var firstPage = getVehiclesPage(box, 1);
         var totalPages = firstPage.getTotalPages();
-        return getAllVehicles(totalPages, firstPage)
+        return getAllVehicles(box, totalPages, firstPage)
                 .stream()
                 .filter(vehicle -> filterByCoordinates(vehicle.getCoordinates(), x, y, Long.valueOf(maxDistance)))
                 .collect(toList());
@@ -82,7 +138,8 @@ public class DictionaryProcessingBean implements DictionaryProcessingRemote {
 
     @Override
     public MaintenanceReport generateMaintenanceReport(Integer vehicleId, String format, Boolean includeDetails, Boolean includeCosts) {
-        Vehicle vehicle = getVehicleFromRemoteService(vehicleId);
+        Vehicle vehicle = vehicleReadModel.findById(vehicleId)
+                .orElseGet(() -> getVehicleFromRemoteService(vehicleId));
         MaintenanceReport report = new MaintenanceReport();
 
         report.setVehicleId(vehicleId);
@@ -113,9 +170,9 @@ public class DictionaryProcessingBean implements DictionaryProcessingRemote {
         return report;
     }
 
-    private List<Vehicle> getAllVehicles(Integer totalPages, VehiclesGet200Response firstPage) {
+    private List<Vehicle> getAllVehicles(CoordinateBox box, Integer totalPages, VehiclesGet200Response firstPage) {
         if (nonNull(totalPages) && totalPages > 1) {
-            return mergeVehiclePages(totalPages, firstPage);
+            return mergeVehiclePages(totalPages, firstPage, page -> getVehiclesPage(box, page));
         }
         return ofNullable(firstPage.getContent()).map(content ->
                         content.stream().collect(toList())
@@ -132,30 +189,66 @@ public class DictionaryProcessingBean implements DictionaryProcessingRemote {
         return distanceSquared <= maxDistanceSquared;
     }
 
-    private List<Vehicle> mergeVehiclePages(Integer totalPages, VehiclesGet200Response firstPage) {
-        var vehiclesStream = IntStream.range(2, totalPages - 1)
-                .mapToObj(this::getVehiclesPage)
-                .map(VehiclesGet200Response::getContent)
-                .filter(Objects::nonNull)
-                .flatMap(Collection::stream);
-        if (nonNull(firstPage.getContent())) {
-            return concat(vehiclesStream, firstPage.getContent().stream())
-                    .collect(toList());
-        }
-        return vehiclesStream.collect(toList());
+    private List<Vehicle> mergeVehiclePages(Integer from, Integer to, Integer totalPages, VehiclesGet200Response firstPage) {
+        return mergeVehiclePages(totalPages, firstPage, page -> getVehiclesPageByEnginePower(from, to, page));
     }
 
-    private List<Vehicle> mergeVehiclePages(Integer from, Integer to, Integer totalPages, VehiclesGet200Response firstPage) {
-        var vehiclesStream = IntStream.range(2, totalPages - 1)
-                .mapToObj(i -> getVehiclesPageByEnginePower(from, to, i))
-                .map(VehiclesGet200Response::getContent)
+    private List<Vehicle> mergeVehiclePages(int totalPages, VehiclesGet200Response firstPage,
+                                            IntFunction<VehiclesGet200Response> pageLoader) {
+        var remainingPages = fetchPages(2, totalPages, pageLoader);
+        return concat(Stream.of(firstPage.getContent()), remainingPages.stream())
                 .filter(Objects::nonNull)
-                .flatMap(Collection::stream);
-        if (nonNull(firstPage.getContent())) {
-            return concat(vehiclesStream, firstPage.getContent().stream())
-                    .collect(Collectors.toList());
+                .flatMap(Collection::stream)
+                .collect(toList());
+    }
+
+    /**
+     * Загружает страницы {@code first..last} параллельно, не больше {@link #PAGE_FETCH_CONCURRENCY} сразу.
+     * Каждый поток берет следующий еще не взятый номер, поэтому медленная страница не задерживает остальные.
+     * После первой ошибки новые страницы не запрашиваются, а ошибка пробрасывается вызывающему.
+     *
+     * @return содержимое страниц в порядке номеров
+     */
+    private List<List<Vehicle>> fetchPages(int first, int last, IntFunction<VehiclesGet200Response> pageLoader) {
+        int count = last - first + 1;
+        if (count <= 0) {
+            return emptyList();
         }
-        return vehiclesStream.collect(Collectors.toList());
+        var pages = new AtomicReferenceArray<List<Vehicle>>(count);
+        var nextPage = new AtomicInteger(first);
+        var failure = new AtomicReference<RuntimeException>();
+        Runnable worker = () -> {
+            int page;
+            while (isNull(failure.get()) && (page = nextPage.getAndIncrement()) <= last) {
+                try {
+                    pages.set(page - first, pageLoader.apply(page).getContent());
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        var workers = IntStream.range(0, Math.min(PAGE_FETCH_CONCURRENCY, count))
+                .mapToObj(i -> managedExecutorService.submit(worker))
+                .collect(toList());
+        try {
+            for (Future<?> future : workers) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while fetching vehicle pages", e);
+        } catch (ExecutionException e) {
+            failure.compareAndSet(null, new IllegalStateException("Failed to fetch vehicle pages", e.getCause()));
+        }
+        if (nonNull(failure.get())) {
+            throw failure.get();
+        }
+
+        return IntStream.range(0, count)
+                .mapToObj(pages::get)
+                .collect(toList());
     }
 
     private List<MaintenanceRecord> createMaintenanceRecords() {
@@ -193,77 +286,55 @@ public class DictionaryProcessingBean implements DictionaryProcessingRemote {
     }
 
     private Vehicle getVehicleFromRemoteService(Integer vehicleId) {
-        var sslContext = buildSSLContext();
-        try (var client = ClientBuilder.newBuilder()
-                .sslContext(sslContext)
-                .hostnameVerifier((hostname, session) -> true)
-                .build()) {
-            WebTarget target = client.target(EXTERNAL_SERVICE_BASE_URL)
-                    .path("/vehicles/" + vehicleId);
-
-            return target.request()
-                    .get(Vehicle.class);
-        }
+        WebTarget target = externalServiceClient.target(EXTERNAL_SERVICE_BASE_URL)
+                .path("/vehicles/" + vehicleId);
+
+        return externalServiceClient.execute(target, request -> {
+            var cached = vehicleRevisionCache.get(vehicleId).orElse(null);
+            if (nonNull(cached)) {
+                request.header(HttpHeaders.IF_NONE_MATCH, cached.tag());
+            }
+            try (Response response = request.get()) {
+                if (response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode() && nonNull(cached)) {
+                    return cached.vehicle();
+                }
+                if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                    vehicleRevisionCache.remove(vehicleId);
+                    throw new WebApplicationException(response.getStatus());
+                }
+                var vehicle = response.readEntity(Vehicle.class);
+                var tag = response.getEntityTag();
+                if (nonNull(tag)) {
+                    vehicleRevisionCache.put(vehicleId, tag, vehicle);
+                }
+                return vehicle;
+            }
+        });
     }
 
-    private VehiclesGet200Response getVehiclesPage(int page) {
-        var sslContext = buildSSLContext();
-        try (var client = ClientBuilder.newBuilder()
-                .sslContext(sslContext)
-                .hostnameVerifier((hostname, session) -> true)
-                .build()) {
-            WebTarget target = client.target(EXTERNAL_SERVICE_BASE_URL)
-                    .path("/vehicles")
-                    .queryParam("page", page)
-                    .queryParam("size", 20);
-
-            return target.request().get(new GenericType<>() {
-            });
-        }
+    private VehiclesGet200Response getVehiclesPage(CoordinateBox box, int page) {
+        WebTarget target = externalServiceClient.target(EXTERNAL_SERVICE_BASE_URL)
+                .path("/vehicles")
+                .queryParam("page", page)
+                .queryParam("size", 20)
+                .queryParam("minCoordinateX", box.minX())
+                .queryParam("maxCoordinateX", box.maxX())
+                .queryParam("minCoordinateY", box.minY())
+                .queryParam("maxCoordinateY", box.maxY());
+
+        return externalServiceClient.execute(target, request -> request.get(new GenericType<VehiclesGet200Response>() {
+        }));
     }
 
     private VehiclesGet200Response getVehiclesPageByEnginePower(Integer from, Integer to, int page) {
-        var sslContext = buildSSLContext();
-        try (var client = ClientBuilder.newBuilder()
-                .sslContext(sslContext)
-                .hostnameVerifier((hostname, session) -> true)
-                .build()) {
-            WebTarget target = client.target(EXTERNAL_SERVICE_BASE_URL)
-                    .path("/vehicles")
-                    .queryParam("page", page)
-                    .queryParam("size", 20)
-                    .queryParam("minEnginePower", from)
-                    .queryParam("maxEnginePower", to);
-
-            return target.request().get(new GenericType<>() {
-            });
-        }
-    }
-
-    private SSLContext buildSSLContext() {
-        try {
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(
-                    null,
-                    new TrustManager[]{new X509TrustManager() {
-                        @Override
-                        public void checkClientTrusted(X509Certificate[] chain, String authType) {
-                        }
-
-                        @Override
-                        public void checkServerTrusted(X509Certificate[] chain, String authType) {
-                        }
-
-                        @Override
-                        public X509Certificate[] getAcceptedIssuers() {
-                            return new X509Certificate[0];
-                        }
-                    }},
-                    new java.security.SecureRandom()
-            );
-            return sslContext;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create SSL context", e);
-        }
+        WebTarget target = externalServiceClient.target(EXTERNAL_SERVICE_BASE_URL)
+                .path("/vehicles")
+                .queryParam("page", page)
+                .queryParam("size", 20)
+                .queryParam("minEnginePower", from)
+                .queryParam("maxEnginePower", to);
+
+        return externalServiceClient.execute(target, request -> request.get(new GenericType<VehiclesGet200Response>() {
+        }));
     }
 }
\ No newline at end of file
@@ -2,7 +2,9 @@ package ru.ifmo.service;
 
 import jakarta.ejb.Remote;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
 import ru.ifmo.external.model.Vehicle;
+import ru.ifmo.model.ClientPoolMetrics;
 import ru.ifmo.model.MaintenanceReport;
 
 import java.util.List;
@@ -16,5 +18,7 @@ public interface DictionaryProcessingRemote {
 
     MaintenanceReport generateMaintenanceReport(@Min(1) Integer vehicleId, String format, Boolean includeDetails, Boolean includeCosts);
 
-    List<Vehicle> searchVehiclesByCoordinates(Long x, Integer y, @Min(0) Integer maxDistance);
+    List<Vehicle> searchVehiclesByCoordinates(@NotNull Long x, @NotNull Integer y, @NotNull @Min(0) Integer maxDistance);
+
+    ClientPoolMetrics getClientPoolMetrics();
 }
\ No newline at end of file
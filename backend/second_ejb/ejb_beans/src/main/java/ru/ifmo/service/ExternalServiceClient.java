@@ -0,0 +1,209 @@
+package ru.ifmo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ws.rs.ServiceUnavailableException;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.client.WebTarget;
+import ru.ifmo.model.ClientPoolMetrics;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static jakarta.ejb.ConcurrencyManagementType.BEAN;
+
+/**
+ * Общий HTTPS-клиент для обращений к первому сервису. Создается один раз на время работы приложения:
+ * SSL-контекст и JAX-RS клиент переиспользуются, поэтому соединения остаются открытыми (keep-alive)
+ * между запросами, а повторные рукопожатия TLS возобновляют сессию из кэша SSL-контекста.
+ * <p>
+ * Число одновременных запросов к одному хосту ограничено; запрос, не дождавшийся свободного места,
+ * завершается 503. Настройки задаются системными свойствами:
+ * <ul>
+ *     <li>{@code external.client.max-connections-per-host} — лимит на хост (по умолчанию 20);</li>
+ *     <li>{@code external.client.connect-timeout-ms} — таймаут подключения (2000);</li>
+ *     <li>{@code external.client.read-timeout-ms} — таймаут чтения ответа (10000);</li>
+ *     <li>{@code external.client.acquire-timeout-ms} — ожидание свободного места в лимите (5000);</li>
+ *     <li>{@code external.client.tls-session-timeout-s} — время жизни TLS-сессии в кэше (3600).</li>
+ * </ul>
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(BEAN)
+public class ExternalServiceClient {
+
+    private static final String PROPERTY_PREFIX = "external.client.";
+
+    private final int maxConnectionsPerHost = intProperty("max-connections-per-host", 20);
+    private final int connectTimeoutMillis = intProperty("connect-timeout-ms", 2000);
+    private final int readTimeoutMillis = intProperty("read-timeout-ms", 10_000);
+    private final int acquireTimeoutMillis = intProperty("acquire-timeout-ms", 5000);
+    private final int tlsSessionTimeoutSeconds = intProperty("tls-session-timeout-s", 3600);
+
+    private final Map<String, HostPool> pools = new ConcurrentHashMap<>();
+
+    private SSLContext sslContext;
+    private Client client;
+
+    @PostConstruct
+    public void init() {
+        // размер кэша простаивающих keep-alive соединений JDK на хост; читается JDK один раз при первом использовании
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(maxConnectionsPerHost));
+        }
+        sslContext = buildSSLContext();
+        sslContext.getClientSessionContext().setSessionTimeout(tlsSessionTimeoutSeconds);
+        client = ClientBuilder.newBuilder()
+                .sslContext(sslContext)
+                .hostnameVerifier((hostname, session) -> true)
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    public WebTarget target(String uri) {
+        return client.target(uri);
+    }
+
+    /**
+     * Выполняет запрос к {@code target} в пределах лимита соединений его хоста.
+     * Ответ должен быть прочитан или закрыт внутри {@code call}, иначе соединение не вернется в пул.
+     */
+    public <T> T execute(WebTarget target, Function<Invocation.Builder, T> call) {
+        HostPool pool = pools.computeIfAbsent(target.getUri().getAuthority(), host -> new HostPool(maxConnectionsPerHost));
+        pool.acquire(acquireTimeoutMillis);
+        try {
+            return call.apply(target.request());
+        } catch (RuntimeException e) {
+            pool.failures.incrementAndGet();
+            throw e;
+        } finally {
+            pool.release();
+        }
+    }
+
+    public ClientPoolMetrics getMetrics() {
+        ClientPoolMetrics metrics = new ClientPoolMetrics();
+        metrics.setMaxConnectionsPerHost(maxConnectionsPerHost);
+        metrics.setConnectTimeoutMillis(connectTimeoutMillis);
+        metrics.setReadTimeoutMillis(readTimeoutMillis);
+        metrics.setAcquireTimeoutMillis(acquireTimeoutMillis);
+        metrics.setCachedTlsSessions(Collections.list(sslContext.getClientSessionContext().getIds()).size());
+        metrics.setHosts(pools.entrySet().stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .toList());
+        return metrics;
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.getInteger(PROPERTY_PREFIX + name, defaultValue);
+    }
+
+    private static SSLContext buildSSLContext() {
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(
+                    null,
+                    new TrustManager[]{new X509TrustManager() {
+                        @Override
+                        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+                        }
+
+                        @Override
+                        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+                        }
+
+                        @Override
+                        public X509Certificate[] getAcceptedIssuers() {
+                            return new X509Certificate[0];
+                        }
+                    }},
+                    new java.security.SecureRandom()
+            );
+            return sslContext;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create SSL context", e);
+        }
+    }
+
+    /**
+     * Лимит одновременных запросов к одному хосту и счетчики его использования.
+     */
+    private static final class HostPool {
+
+        private final int limit;
+        private final Semaphore permits;
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final AtomicInteger peakInUse = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong waited = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        private HostPool(int limit) {
+            this.limit = limit;
+            this.permits = new Semaphore(limit, true);
+        }
+
+        private void acquire(long timeoutMillis) {
+            if (!permits.tryAcquire()) {
+                waited.incrementAndGet();
+                boolean acquired;
+                try {
+                    acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    acquired = false;
+                }
+                if (!acquired) {
+                    rejected.incrementAndGet();
+                    throw new ServiceUnavailableException("External service connection limit reached");
+                }
+            }
+            requests.incrementAndGet();
+            peakInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+        }
+
+        private void release() {
+            inUse.decrementAndGet();
+            permits.release();
+        }
+
+        private ClientPoolMetrics.HostPool snapshot(String host) {
+            ClientPoolMetrics.HostPool metrics = new ClientPoolMetrics.HostPool();
+            metrics.setHost(host);
+            metrics.setLimit(limit);
+            metrics.setInUse(inUse.get());
+            metrics.setPeakInUse(peakInUse.get());
+            metrics.setQueued(permits.getQueueLength());
+            metrics.setRequests(requests.get());
+            metrics.setWaited(waited.get());
+            metrics.setRejected(rejected.get());
+            metrics.setFailures(failures.get());
+            metrics.setUtilization(limit == 0 ? 0.0 : (double) inUse.get() / limit);
+            return metrics;
+        }
+    }
+}
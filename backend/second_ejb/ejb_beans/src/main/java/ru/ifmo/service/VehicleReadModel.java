@@ -0,0 +1,240 @@
+package ru.ifmo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.Response;
+import ru.ifmo.external.model.Vehicle;
+import ru.ifmo.external.model.VehicleChanges;
+import ru.ifmo.external.model.VehiclesGet200Response;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static jakarta.ejb.ConcurrencyManagementType.BEAN;
+import static jakarta.ejb.TransactionAttributeType.NOT_SUPPORTED;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Локальная копия каталога первого сервиса для поиска по мощности, координатам и id без обращения по сети.
+ * <p>
+ * Копия загружается один раз постранично по курсору (keyset, без смещения) и дальше догоняет первый сервис
+ * по журналу изменений ({@code /vehicles/changes?since=}) от своей версии — номера последнего примененного
+ * изменения. Журнал опрашивается по таймеру; когда он прочитан до конца, копия считается подтвержденной
+ * на момент опроса. Если журнал сжат дальше версии копии (410), копия загружается заново. Пока копия не
+ * загружена или подтверждена давнее допустимого, методы поиска возвращают пустой результат, и вызывающий
+ * идет в первый сервис. Изменения, сделанные через этот сервис ({@link #written}), попадают в копию сразу.
+ * <p>
+ * Настройки задаются системными свойствами:
+ * <ul>
+ *     <li>{@code vehicle.read-model.enabled} — включена ли копия (по умолчанию true);</li>
+ *     <li>{@code vehicle.read-model.refresh-interval-ms} — период проверки версии (5000);</li>
+ *     <li>{@code vehicle.read-model.max-staleness-ms} — допустимый возраст подтверждения (15000);</li>
+ *     <li>{@code vehicle.read-model.grid-cell-size} — сторона ячейки сетки координат (64).</li>
+ * </ul>
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(BEAN)
+// только HTTP-запросы: транзакция не нужна, а полная загрузка может идти дольше ее таймаута
+@TransactionAttribute(NOT_SUPPORTED)
+public class VehicleReadModel {
+
+    private static final String PROPERTY_PREFIX = "vehicle.read-model.";
+    private static final int PAGE_SIZE = 100;
+    private static final int CHANGES_LIMIT = 500;
+
+    private final boolean enabled = Boolean.parseBoolean(System.getProperty(PROPERTY_PREFIX + "enabled", "true"));
+    private final long refreshIntervalMillis = Long.getLong(PROPERTY_PREFIX + "refresh-interval-ms", 5000);
+    private final long maxStalenessMillis = Long.getLong(PROPERTY_PREFIX + "max-staleness-ms", 15_000);
+    private final int gridCellSize = Integer.getInteger(PROPERTY_PREFIX + "grid-cell-size", 64);
+
+    @EJB
+    private ExternalServiceClient externalServiceClient;
+
+    @Resource
+    private TimerService timerService;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile VehicleSnapshot snapshot;
+
+    /**
+     * Изменения, сделанные через этот сервис, и номера журнала, под которыми они зафиксированы.
+     * Применяются к копии сразу и заново к каждой обновленной копии, версия которой меньше номера изменения.
+     */
+    private final Map<Integer, LocalWrite> writes = new HashMap<>();
+
+    private record LocalWrite(Vehicle vehicle, long sequence) {
+    }
+
+    /**
+     * Когда копия последний раз сверена с версией первого сервиса (мс).
+     */
+    private volatile long verifiedAt;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            timerService.createIntervalTimer(0, refreshIntervalMillis, new TimerConfig(null, false));
+        }
+    }
+
+    public Optional<List<Vehicle>> findByEnginePower(Integer from, Integer to) {
+        return current().map(current -> current.findByEnginePower(from, to));
+    }
+
+    /**
+     * Пусто, если копия устарела или не задана точка или расстояние.
+     */
+    public Optional<List<Vehicle>> findWithin(Long x, Integer y, Integer maxDistance) {
+        if (isNull(x) || isNull(y) || isNull(maxDistance)) {
+            return Optional.empty();
+        }
+        return current().map(current -> current.findWithin(x, y, maxDistance));
+    }
+
+    /**
+     * Изменение, сделанное через этот сервис ({@code sequence} — номер журнала из X-Change-Sequence, 0 — неизвестен):
+     * копия отдает новое состояние сразу, не дожидаясь перезагрузки.
+     */
+    public void written(Vehicle vehicle, long sequence) {
+        if (isNull(vehicle) || isNull(vehicle.getId())) {
+            return;
+        }
+        synchronized (writes) {
+            writes.put(vehicle.getId(), new LocalWrite(vehicle, sequence));
+            VehicleSnapshot current = snapshot;
+            if (nonNull(current)) {
+                snapshot = current.with(vehicle);
+            }
+        }
+    }
+
+    /**
+     * Запись из копии; пусто, если копия устарела или записи в ней нет (она могла появиться после загрузки).
+     */
+    public Optional<Vehicle> findById(Integer id) {
+        return current().flatMap(current -> current.findById(id));
+    }
+
+    @Timeout
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long checkedAt = System.currentTimeMillis();
+            VehicleSnapshot loaded = snapshot;
+            VehicleSnapshot updated;
+            if (isNull(loaded)) {
+                updated = loadAll();
+            } else {
+                try {
+                    updated = catchUp(loaded);
+                } catch (WebApplicationException e) {
+                    if (e.getResponse().getStatus() != Response.Status.GONE.getStatusCode()) {
+                        throw e;
+                    }
+                    // журнал сжат дальше версии копии — копия загружается заново
+                    updated = loadAll();
+                }
+            }
+            synchronized (writes) {
+                // свои изменения, зафиксированные после версии, могли еще не попасть в журнал
+                long version = updated.version();
+                writes.values().removeIf(write -> write.sequence() <= version);
+                for (LocalWrite write : writes.values()) {
+                    updated = updated.with(write.vehicle());
+                }
+                snapshot = updated;
+            }
+            verifiedAt = checkedAt;
+        } catch (RuntimeException e) {
+            System.out.println("Vehicle read model refresh failed: " + e.getMessage());
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private Optional<VehicleSnapshot> current() {
+        VehicleSnapshot current = snapshot;
+        if (isNull(current) || System.currentTimeMillis() - verifiedAt > maxStalenessMillis) {
+            return Optional.empty();
+        }
+        return Optional.of(current);
+    }
+
+    /**
+     * Применяет к копии журнал от ее версии, пока он не прочитан до конца.
+     * UPSERT несет текущее состояние записи, поэтому повторное применение изменения ничего не портит.
+     */
+    private VehicleSnapshot catchUp(VehicleSnapshot from) {
+        VehicleSnapshot current = from;
+        VehicleChanges changes;
+        do {
+            changes = changesSince(current.version(), CHANGES_LIMIT);
+            long last = nonNull(changes.getLastSequence()) ? changes.getLastSequence() : current.version();
+            current = current.apply(last, nonNull(changes.getChanges()) ? changes.getChanges() : List.of());
+        } while (Boolean.TRUE.equals(changes.getHasMore()));
+        return current;
+    }
+
+    private VehicleChanges changesSince(long since, int limit) {
+        WebTarget target = externalServiceClient.target(DictionaryProcessingBean.EXTERNAL_SERVICE_BASE_URL)
+                .path("/vehicles/changes")
+                .queryParam("since", since)
+                .queryParam("limit", limit);
+
+        return externalServiceClient.execute(target, request -> request.get(VehicleChanges.class));
+    }
+
+    /**
+     * Полная загрузка: каталог читается страницами по курсору в порядке id без подсчета total,
+     * затем копия догоняет журнал от версии, прочитанной до загрузки, — изменения, попавшие в загрузку,
+     * применяются повторно, но ни одно не пропускается.
+     */
+    private VehicleSnapshot loadAll() {
+        VehicleChanges head = changesSince(0, 1);
+        long version = nonNull(head.getHeadSequence()) ? head.getHeadSequence() : 0;
+
+        List<Vehicle> vehicles = new ArrayList<>();
+        String cursor = "";
+        do {
+            WebTarget target = externalServiceClient.target(DictionaryProcessingBean.EXTERNAL_SERVICE_BASE_URL)
+                    .path("/vehicles")
+                    .queryParam("cursor", cursor)
+                    .queryParam("size", PAGE_SIZE)
+                    .queryParam("sort", "id")
+                    .queryParam("order", "asc")
+                    .queryParam("withTotal", false);
+
+            VehiclesGet200Response response = externalServiceClient.execute(target,
+                    request -> request.get(new GenericType<VehiclesGet200Response>() {
+                    }));
+            if (nonNull(response.getContent())) {
+                vehicles.addAll(response.getContent());
+            }
+            cursor = response.getNextCursor();
+        } while (nonNull(cursor));
+
+        VehicleSnapshot loaded = catchUp(VehicleSnapshot.build(version, vehicles, gridCellSize));
+        System.out.println("Vehicle read model loaded " + loaded.size() + " vehicles at change " + loaded.version());
+        return loaded;
+    }
+}
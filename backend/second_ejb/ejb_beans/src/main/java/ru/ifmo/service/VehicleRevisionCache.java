@@ -0,0 +1,47 @@
+package ru.ifmo.service;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.Singleton;
+import jakarta.ws.rs.core.EntityTag;
+import ru.ifmo.external.model.Vehicle;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static jakarta.ejb.ConcurrencyManagementType.BEAN;
+
+/**
+ * Последние полученные из первого сервиса версии транспортных средств вместе с их ETag.
+ * Повторный запрос идет с If-None-Match, и при 304 тело не передается — используется сохраненная копия.
+ * <p>
+ * Один экземпляр на приложение: записи общие для всех экземпляров {@link DictionaryProcessingBean}
+ * и исчезают вместе с приложением при повторном развертывании. При достижении
+ * {@code vehicle.revision-cache.limit} записей (по умолчанию 10000) кэш очищается целиком.
+ */
+@Singleton
+@ConcurrencyManagement(BEAN)
+public class VehicleRevisionCache {
+
+    private final int limit = Integer.getInteger("vehicle.revision-cache.limit", 10_000);
+
+    private final Map<Integer, VehicleRevision> revisions = new ConcurrentHashMap<>();
+
+    public record VehicleRevision(EntityTag tag, Vehicle vehicle) {
+    }
+
+    public Optional<VehicleRevision> get(Integer vehicleId) {
+        return Optional.ofNullable(revisions.get(vehicleId));
+    }
+
+    public void put(Integer vehicleId, EntityTag tag, Vehicle vehicle) {
+        if (revisions.size() >= limit) {
+            revisions.clear();
+        }
+        revisions.put(vehicleId, new VehicleRevision(tag, vehicle));
+    }
+
+    public void remove(Integer vehicleId) {
+        revisions.remove(vehicleId);
+    }
+}
@@ -0,0 +1,309 @@
+package ru.ifmo.service;
+
+import ru.ifmo.external.model.Vehicle;
+import ru.ifmo.external.model.VehicleChange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Неизменяемая копия каталога на версии журнала {@code version}. Транспортные средства лежат массивом
+ * в порядке id, поля для поиска — в массивах примитивов:
+ * <ul>
+ *     <li>мощность двигателя — отсортированный массив с номерами записей, диапазон ищется двоичным поиском;</li>
+ *     <li>координаты — сетка из квадратных ячеек: отсортированные ключи ячеек и номера записей по ячейкам.</li>
+ * </ul>
+ */
+final class VehicleSnapshot {
+
+    private final long version;
+    private final Vehicle[] vehicles;
+    private final int[] ids;
+    private final long[] x;
+    private final int[] y;
+
+    /**
+     * Мощности по возрастанию и номер записи для каждой из них; записи без мощности не входят.
+     */
+    private final long[] enginePowers;
+    private final int[] byEnginePower;
+
+    /**
+     * Ячейка i сетки содержит записи cellMembers[cellStart[i] .. cellStart[i + 1]).
+     */
+    private final int cellSize;
+    private final long[] cellKeys;
+    private final int[] cellStart;
+    private final int[] cellMembers;
+
+    private VehicleSnapshot(long version, Vehicle[] vehicles, int cellSize) {
+        this.version = version;
+        this.vehicles = vehicles;
+        this.cellSize = cellSize;
+        int size = vehicles.length;
+
+        ids = new int[size];
+        x = new long[size];
+        y = new int[size];
+        long[] packedPowers = new long[size];
+        int powered = 0;
+        for (int i = 0; i < size; i++) {
+            Vehicle vehicle = vehicles[i];
+            ids[i] = vehicle.getId();
+            x[i] = vehicle.getCoordinates().getX();
+            y[i] = vehicle.getCoordinates().getY();
+            if (nonNull(vehicle.getEnginePower())) {
+                // мощность в старших 32 битах, номер записи в младших: сортировка long упорядочивает по мощности
+                packedPowers[powered++] = (long) vehicle.getEnginePower() << 32 | i;
+            }
+        }
+        Arrays.sort(packedPowers, 0, powered);
+        enginePowers = new long[powered];
+        byEnginePower = new int[powered];
+        for (int i = 0; i < powered; i++) {
+            enginePowers[i] = packedPowers[i] >> 32;
+            byEnginePower[i] = (int) packedPowers[i];
+        }
+
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = cellKey(Math.floorDiv(x[i], cellSize), Math.floorDiv(y[i], cellSize));
+        }
+        long[] sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        int cells = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || sortedKeys[i] != sortedKeys[i - 1]) {
+                sortedKeys[cells++] = sortedKeys[i];
+            }
+        }
+        cellKeys = Arrays.copyOf(sortedKeys, cells);
+        cellStart = new int[cells + 1];
+        int[] cellOf = new int[size];
+        for (int i = 0; i < size; i++) {
+            cellOf[i] = Arrays.binarySearch(cellKeys, keys[i]);
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellMembers = new int[size];
+        int[] fill = Arrays.copyOf(cellStart, cells);
+        for (int i = 0; i < size; i++) {
+            cellMembers[fill[cellOf[i]]++] = i;
+        }
+    }
+
+    /**
+     * Копия с теми же индексами и другими объектами записей (поля, по которым строятся индексы, те же).
+     */
+    private VehicleSnapshot(VehicleSnapshot indexed, long version, Vehicle[] vehicles) {
+        this.version = version;
+        this.vehicles = vehicles;
+        this.ids = indexed.ids;
+        this.x = indexed.x;
+        this.y = indexed.y;
+        this.enginePowers = indexed.enginePowers;
+        this.byEnginePower = indexed.byEnginePower;
+        this.cellSize = indexed.cellSize;
+        this.cellKeys = indexed.cellKeys;
+        this.cellStart = indexed.cellStart;
+        this.cellMembers = indexed.cellMembers;
+    }
+
+    /**
+     * Строит копию по загруженным записям. Повторы одного id схлопываются (последняя запись побеждает),
+     * записи без id или координат пропускаются.
+     */
+    static VehicleSnapshot build(long version, Collection<Vehicle> loaded, int cellSize) {
+        Map<Integer, Vehicle> byId = new TreeMap<>();
+        for (Vehicle vehicle : loaded) {
+            if (nonNull(vehicle.getId()) && nonNull(vehicle.getCoordinates())
+                    && nonNull(vehicle.getCoordinates().getX()) && nonNull(vehicle.getCoordinates().getY())) {
+                byId.put(vehicle.getId(), vehicle);
+            }
+        }
+        return new VehicleSnapshot(version, byId.values().toArray(new Vehicle[0]), cellSize);
+    }
+
+    /**
+     * Копия с {@code updated} вместо записи с тем же id, если та старше (по version) или ее нет.
+     * Если мощность и координаты не изменились, индексы общие с этой копией; иначе копия строится заново.
+     */
+    VehicleSnapshot with(Vehicle updated) {
+        if (isNull(updated.getId()) || isNull(updated.getCoordinates())
+                || isNull(updated.getCoordinates().getX()) || isNull(updated.getCoordinates().getY())) {
+            return this;
+        }
+        int index = Arrays.binarySearch(ids, updated.getId());
+        if (index < 0) {
+            List<Vehicle> all = new ArrayList<>(Arrays.asList(vehicles));
+            all.add(updated);
+            return build(version, all, cellSize);
+        }
+        Vehicle current = vehicles[index];
+        if (nonNull(current.getVersion()) && nonNull(updated.getVersion()) && updated.getVersion() <= current.getVersion()) {
+            return this;
+        }
+        Vehicle[] replaced = vehicles.clone();
+        replaced[index] = updated;
+        if (Objects.equals(current.getEnginePower(), updated.getEnginePower())
+                && x[index] == updated.getCoordinates().getX() && y[index] == updated.getCoordinates().getY()) {
+            return new VehicleSnapshot(this, version, replaced);
+        }
+        return build(version, Arrays.asList(replaced), cellSize);
+    }
+
+    /**
+     * Копия на версии {@code version} с изменениями журнала, примененными по порядку: UPSERT заменяет запись,
+     * если та старше (по version) или ее нет, DELETE удаляет запись. Индексы строятся заново один раз;
+     * если записи не изменились, они общие с этой копией.
+     */
+    VehicleSnapshot apply(long version, List<VehicleChange> changes) {
+        Map<Integer, Vehicle> byId = new TreeMap<>();
+        for (Vehicle vehicle : vehicles) {
+            byId.put(vehicle.getId(), vehicle);
+        }
+        boolean changed = false;
+        for (VehicleChange change : changes) {
+            if (isNull(change.getVehicleId())) {
+                continue;
+            }
+            if (change.getType() == VehicleChange.TypeEnum.DELETE) {
+                changed |= nonNull(byId.remove(change.getVehicleId()));
+                continue;
+            }
+            Vehicle updated = change.getVehicle();
+            if (isNull(updated) || !change.getVehicleId().equals(updated.getId())) {
+                continue;
+            }
+            Vehicle current = byId.get(updated.getId());
+            if (nonNull(current) && nonNull(current.getVersion()) && nonNull(updated.getVersion())
+                    && updated.getVersion() <= current.getVersion()) {
+                continue;
+            }
+            byId.put(updated.getId(), updated);
+            changed = true;
+        }
+        if (!changed) {
+            return new VehicleSnapshot(this, version, vehicles);
+        }
+        return build(version, byId.values(), cellSize);
+    }
+
+    long version() {
+        return version;
+    }
+
+    int size() {
+        return vehicles.length;
+    }
+
+    Optional<Vehicle> findById(int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? Optional.of(vehicles[index]) : Optional.empty();
+    }
+
+    /**
+     * Записи с мощностью в [from, to]; null — граница не задана. Без обеих границ — все записи.
+     */
+    List<Vehicle> findByEnginePower(Integer from, Integer to) {
+        if (from == null && to == null) {
+            return new ArrayList<>(Arrays.asList(vehicles));
+        }
+        int start = firstAtLeast(enginePowers, from == null ? Long.MIN_VALUE : from);
+        int end = to == null ? enginePowers.length : firstAtLeast(enginePowers, (long) to + 1);
+        BitSet hits = new BitSet(vehicles.length);
+        for (int i = start; i < end; i++) {
+            hits.set(byEnginePower[i]);
+        }
+        return collect(hits);
+    }
+
+    /**
+     * Записи на расстоянии не больше {@code distance} от точки (x, y).
+     * Если квадрат поиска покрывает больше ячеек, чем занято в сетке, записи просматриваются подряд.
+     */
+    List<Vehicle> findWithin(long pointX, int pointY, int distance) {
+        CoordinateBox box = CoordinateBox.around(pointX, pointY, distance);
+        long minCellX = Math.floorDiv(box.minX(), cellSize);
+        long maxCellX = Math.floorDiv(box.maxX(), cellSize);
+        long minCellY = Math.floorDiv(box.minY(), cellSize);
+        long maxCellY = Math.floorDiv(box.maxY(), cellSize);
+
+        BitSet hits = new BitSet(vehicles.length);
+        double boxCells = ((double) maxCellX - minCellX + 1) * ((double) maxCellY - minCellY + 1);
+        if (boxCells > cellKeys.length) {
+            for (int i = 0; i < vehicles.length; i++) {
+                if (within(i, box, pointX, pointY, distance)) {
+                    hits.set(i);
+                }
+            }
+            return collect(hits);
+        }
+        for (long cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (long cellY = minCellY; cellY <= maxCellY; cellY++) {
+                int cell = Arrays.binarySearch(cellKeys, cellKey(cellX, cellY));
+                if (cell < 0) {
+                    continue;
+                }
+                for (int m = cellStart[cell]; m < cellStart[cell + 1]; m++) {
+                    if (within(cellMembers[m], box, pointX, pointY, distance)) {
+                        hits.set(cellMembers[m]);
+                    }
+                }
+            }
+        }
+        return collect(hits);
+    }
+
+    private boolean within(int index, CoordinateBox box, long pointX, int pointY, int distance) {
+        // внутри квадрата |dx| и |dy| не больше distance, поэтому разности и их квадраты не переполняют long
+        if (!box.contains(x[index], y[index])) {
+            return false;
+        }
+        long dx = x[index] - pointX;
+        long dy = (long) y[index] - pointY;
+        return dx * dx + dy * dy <= (long) distance * distance;
+    }
+
+    private List<Vehicle> collect(BitSet hits) {
+        List<Vehicle> result = new ArrayList<>(hits.cardinality());
+        for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+            result.add(vehicles[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Ключ ячейки сетки. Разные ячейки могут получить один ключ — это лишь объединяет их записи,
+     * точная проверка расстояния все равно выполняется по каждой.
+     */
+    private static long cellKey(long cellX, long cellY) {
+        return cellX * 0x9E3779B97F4A7C15L + cellY;
+    }
+
+    private static int firstAtLeast(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
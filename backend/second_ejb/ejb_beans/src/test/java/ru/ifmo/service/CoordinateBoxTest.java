@@ -0,0 +1,64 @@
+package ru.ifmo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoordinateBoxTest {
+
+    @Test
+    void aroundKeepsBoundsInsideRange() {
+        assertEquals(new CoordinateBox(-5, 15, -3, 17), CoordinateBox.around(5, 7, 10));
+        assertEquals(new CoordinateBox(5, 5, 7, 7), CoordinateBox.around(5, 7, 0));
+    }
+
+    @Test
+    void aroundClampsXAtLongLimits() {
+        CoordinateBox low = CoordinateBox.around(Long.MIN_VALUE + 1, 0, 5);
+        assertEquals(Long.MIN_VALUE, low.minX());
+        assertEquals(Long.MIN_VALUE + 6, low.maxX());
+
+        CoordinateBox high = CoordinateBox.around(Long.MAX_VALUE - 1, 0, 5);
+        assertEquals(Long.MAX_VALUE - 6, high.minX());
+        assertEquals(Long.MAX_VALUE, high.maxX());
+    }
+
+    @Test
+    void aroundClampsYAtIntLimits() {
+        CoordinateBox high = CoordinateBox.around(0, Integer.MAX_VALUE - 1, 5);
+        assertEquals(Integer.MAX_VALUE - 6, high.minY());
+        assertEquals(Integer.MAX_VALUE, high.maxY());
+
+        CoordinateBox low = CoordinateBox.around(0, Integer.MIN_VALUE + 1, 5);
+        assertEquals(Integer.MIN_VALUE, low.minY());
+        assertEquals(Integer.MIN_VALUE + 6, low.maxY());
+
+        // -2 - Integer.MAX_VALUE меньше Integer.MIN_VALUE на единицу
+        CoordinateBox wide = CoordinateBox.around(0, -2, Integer.MAX_VALUE);
+        assertEquals(Integer.MIN_VALUE, wide.minY());
+        assertEquals(Integer.MAX_VALUE - 2, wide.maxY());
+    }
+
+    @Test
+    void aroundWithHugeDistanceCoversWholeRange() {
+        CoordinateBox box = CoordinateBox.around(0, -2, Long.MAX_VALUE);
+
+        assertEquals(-Long.MAX_VALUE, box.minX());
+        assertEquals(Long.MAX_VALUE, box.maxX());
+        assertEquals(Integer.MIN_VALUE, box.minY());
+        assertEquals(Integer.MAX_VALUE, box.maxY());
+        assertTrue(box.contains(Long.MAX_VALUE, Integer.MIN_VALUE));
+    }
+
+    @Test
+    void containsIncludesEdges() {
+        CoordinateBox box = CoordinateBox.around(0, 0, 3);
+
+        assertTrue(box.contains(-3, 3));
+        assertTrue(box.contains(3, -3));
+        assertFalse(box.contains(4, 0));
+        assertFalse(box.contains(0, -4));
+    }
+}
@@ -0,0 +1,195 @@
+package ru.ifmo.service;
+
+import org.junit.jupiter.api.Test;
+import ru.ifmo.external.model.Coordinates;
+import ru.ifmo.external.model.Vehicle;
+import ru.ifmo.external.model.VehicleChange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class VehicleSnapshotTest {
+
+    @Test
+    void findByEnginePowerIncludesBoundsAndSkipsMissingPower() {
+        VehicleSnapshot snapshot = VehicleSnapshot.build(1, List.of(
+                vehicle(1, 0, 0, 10),
+                vehicle(2, 0, 0, 20),
+                vehicle(3, 0, 0, null),
+                vehicle(4, 0, 0, 30),
+                vehicle(5, 0, 0, 20)), 10);
+
+        assertEquals(List.of(2, 4, 5), ids(snapshot.findByEnginePower(20, 30)));
+        assertEquals(List.of(1, 2, 5), ids(snapshot.findByEnginePower(null, 20)));
+        assertEquals(List.of(4), ids(snapshot.findByEnginePower(21, null)));
+        assertEquals(List.of(), ids(snapshot.findByEnginePower(31, 40)));
+        assertEquals(List.of(1, 2, 3, 4, 5), ids(snapshot.findByEnginePower(null, null)));
+    }
+
+    @Test
+    void findWithinIncludesBoundaryDistance() {
+        VehicleSnapshot snapshot = VehicleSnapshot.build(1, List.of(
+                vehicle(1, 3, 4, 1),
+                vehicle(2, 4, 4, 1),
+                vehicle(3, -5, 0, 1),
+                vehicle(4, 0, -6, 1)), 2);
+
+        assertEquals(List.of(1, 3), ids(snapshot.findWithin(0, 0, 5)));
+        assertEquals(List.of(1, 2, 3, 4), ids(snapshot.findWithin(0, 0, 6)));
+        assertEquals(List.of(), ids(snapshot.findWithin(100, 100, 0)));
+    }
+
+    @Test
+    void findWithinHandlesNegativeCoordinates() {
+        VehicleSnapshot snapshot = VehicleSnapshot.build(1, List.of(
+                vehicle(1, -11, -11, 1),
+                vehicle(2, -10, -10, 1),
+                vehicle(3, -1, -1, 1),
+                vehicle(4, 1, 1, 1)), 10);
+
+        assertEquals(List.of(1, 2), ids(snapshot.findWithin(-10, -10, 2)));
+        assertEquals(List.of(3, 4), ids(snapshot.findWithin(0, 0, 2)));
+    }
+
+    @Test
+    void findWithinAtCoordinateLimits() {
+        VehicleSnapshot snapshot = VehicleSnapshot.build(1, List.of(
+                vehicle(1, Long.MAX_VALUE, Integer.MAX_VALUE, 1),
+                vehicle(2, Long.MIN_VALUE, Integer.MIN_VALUE, 1),
+                vehicle(3, 0, -2, 1)), 100);
+
+        assertEquals(List.of(1), ids(snapshot.findWithin(Long.MAX_VALUE - 3, Integer.MAX_VALUE - 4, 5)));
+        assertEquals(List.of(2), ids(snapshot.findWithin(Long.MIN_VALUE + 3, Integer.MIN_VALUE + 4, 5)));
+        assertEquals(List.of(3), ids(snapshot.findWithin(0, -2, Integer.MAX_VALUE)));
+    }
+
+    @Test
+    void gridAndFullScanAgree() {
+        Random random = new Random(42);
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            vehicles.add(vehicle(id, random.nextInt(401) - 200, random.nextInt(401) - 200, 1));
+        }
+        VehicleSnapshot snapshot = VehicleSnapshot.build(1, vehicles, 16);
+
+        // малые расстояния идут по ячейкам сетки, большие — полным просмотром
+        for (int distance : new int[]{0, 5, 16, 40, 150, 1000}) {
+            for (int probe = 0; probe < 20; probe++) {
+                long pointX = random.nextInt(501) - 250;
+                int pointY = random.nextInt(501) - 250;
+                assertEquals(bruteForce(vehicles, pointX, pointY, distance),
+                        ids(snapshot.findWithin(pointX, pointY, distance)),
+                        "(" + pointX + ", " + pointY + ") distance " + distance);
+            }
+        }
+    }
+
+    @Test
+    void withReplacesOnlyNewerVersion() {
+        VehicleSnapshot snapshot = VehicleSnapshot.build(7, List.of(
+                vehicle(1, 0, 0, 10).version(2L),
+                vehicle(2, 50, 50, 20).version(1L)), 10);
+
+        assertSame(snapshot, snapshot.with(vehicle(1, 0, 0, 99).version(2L)));
+        assertSame(snapshot, snapshot.with(vehicle(1, 0, 0, 99).version(1L)));
+
+        VehicleSnapshot renamed = snapshot.with(vehicle(1, 0, 0, 10).version(3L).name("renamed"));
+        assertEquals("renamed", renamed.findById(1).orElseThrow().getName());
+        assertEquals(7, renamed.version());
+
+        VehicleSnapshot moved = snapshot.with(vehicle(1, 48, 48, 30).version(3L));
+        assertEquals(List.of(1, 2), ids(moved.findWithin(50, 50, 3)));
+        assertEquals(List.of(1), ids(moved.findByEnginePower(30, 30)));
+        assertEquals(List.of(), ids(moved.findByEnginePower(10, 10)));
+    }
+
+    @Test
+    void withAddsUnknownVehicleAndSkipsIncomplete() {
+        VehicleSnapshot snapshot = VehicleSnapshot.build(1, List.of(vehicle(2, 0, 0, 10)), 10);
+
+        VehicleSnapshot added = snapshot.with(vehicle(1, 1, 1, 10));
+        assertEquals(2, added.size());
+        assertEquals(List.of(1, 2), ids(added.findByEnginePower(10, 10)));
+
+        assertSame(snapshot, snapshot.with(new Vehicle().id(3)));
+        assertSame(snapshot, snapshot.with(new Vehicle().coordinates(new Coordinates().x(1L).y(1))));
+    }
+
+    @Test
+    void applyReplaysChangesInOrder() {
+        VehicleSnapshot snapshot = VehicleSnapshot.build(5, List.of(
+                vehicle(1, 0, 0, 10).version(1L),
+                vehicle(2, 0, 0, 20).version(1L),
+                vehicle(3, 0, 0, 30).version(1L)), 10);
+
+        VehicleSnapshot applied = snapshot.apply(9, List.of(
+                upsert(6, vehicle(1, 0, 0, 15).version(2L)),
+                delete(7, 2),
+                upsert(8, vehicle(4, 0, 0, 40).version(0L)),
+                delete(9, 5)));
+
+        assertEquals(9, applied.version());
+        assertEquals(List.of(1, 3, 4), ids(applied.findByEnginePower(null, null)));
+        assertEquals(List.of(1), ids(applied.findByEnginePower(15, 15)));
+        assertEquals(5, snapshot.version());
+        assertEquals(3, snapshot.size());
+    }
+
+    @Test
+    void applySkipsUpsertNotNewerThanCurrent() {
+        VehicleSnapshot snapshot = VehicleSnapshot.build(5, List.of(vehicle(1, 0, 0, 10).version(3L)), 10);
+
+        VehicleSnapshot applied = snapshot.apply(6, List.of(upsert(6, vehicle(1, 0, 0, 99).version(2L))));
+
+        assertEquals(6, applied.version());
+        assertEquals(10, applied.findById(1).orElseThrow().getEnginePower());
+    }
+
+    @Test
+    void applyWithoutChangesOnlyMovesVersion() {
+        VehicleSnapshot snapshot = VehicleSnapshot.build(5, List.of(vehicle(1, 3, 4, 10)), 10);
+
+        VehicleSnapshot applied = snapshot.apply(8, List.of());
+
+        assertEquals(8, applied.version());
+        assertSame(snapshot.findById(1).orElseThrow(), applied.findById(1).orElseThrow());
+        assertEquals(List.of(1), ids(applied.findWithin(0, 0, 5)));
+    }
+
+    private static VehicleChange upsert(long sequence, Vehicle vehicle) {
+        return new VehicleChange().sequence(sequence).vehicleId(vehicle.getId())
+                .type(VehicleChange.TypeEnum.UPSERT).vehicle(vehicle);
+    }
+
+    private static VehicleChange delete(long sequence, int vehicleId) {
+        return new VehicleChange().sequence(sequence).vehicleId(vehicleId).type(VehicleChange.TypeEnum.DELETE);
+    }
+
+    private static List<Integer> bruteForce(List<Vehicle> vehicles, long pointX, int pointY, int distance) {
+        List<Integer> ids = new ArrayList<>();
+        for (Vehicle vehicle : vehicles) {
+            long dx = vehicle.getCoordinates().getX() - pointX;
+            long dy = vehicle.getCoordinates().getY() - pointY;
+            if (dx * dx + dy * dy <= (long) distance * distance) {
+                ids.add(vehicle.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static Vehicle vehicle(int id, long x, int y, Integer enginePower) {
+        return new Vehicle()
+                .id(id)
+                .name("car" + id)
+                .coordinates(new Coordinates().x(x).y(y))
+                .enginePower(enginePower);
+    }
+
+    private static List<Integer> ids(List<Vehicle> vehicles) {
+        return vehicles.stream().map(Vehicle::getId).toList();
+    }
+}
@@ -0,0 +1,23 @@
+package ru.ifmo.api;
+
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import ru.ifmo.service.DictionaryProcessingRemote;
+
+@Path("/metrics")
+@Produces(MediaType.APPLICATION_JSON)
+public class MetricsResource {
+
+    @EJB
+    private DictionaryProcessingRemote dictionaryProcessingRemote;
+
+    @GET
+    @Path("/client-pool")
+    public Response getClientPoolMetrics() {
+        return Response.ok(dictionaryProcessingRemote.getClientPoolMetrics()).build();
+    }
+}